@@ -0,0 +1,66 @@
+package benchmarks;
+
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.service.InMemoryTaskManager;
+import main.service.TaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Создание задач и подзадач в менеджере, уже содержащем size задач.
+// scheduled = true — у задач есть время начала и выполняется проверка пересечений, false — проверка пропускается.
+// Каждая итерация — одна пачка из BATCH созданий поверх заново заполненного менеджера, чтобы размер не рос
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = CreateBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = CreateBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CreateBenchmark {
+    static final int BATCH = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean scheduled;
+
+    private TaskManager manager;
+    private Epic epic;
+    private long next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Fixtures.fillTasks(manager, size, scheduled);
+        epic = Fixtures.fillEpic(manager, 0, size, scheduled);
+        next = size;
+    }
+
+    @Benchmark
+    public Task createTask() {
+        Task task = Fixtures.task(next++, scheduled);
+        manager.createTask(task);
+        return task;
+    }
+
+    @Benchmark
+    public Subtask createSubtask() {
+        Subtask subtask = Fixtures.subtask(next++, epic.getId(), scheduled);
+        manager.createSubtask(subtask);
+        return subtask;
+    }
+}
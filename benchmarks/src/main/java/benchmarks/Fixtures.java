@@ -0,0 +1,54 @@
+package benchmarks;
+
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.service.TaskManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Общие данные для бенчмарков: задачи длиной в минуту идут через каждые две минуты и не пересекаются
+final class Fixtures {
+    static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+    static final Duration DURATION = Duration.ofMinutes(1);
+    static final int STEP_MINUTES = 2;
+
+    private Fixtures() {
+    }
+
+    // Время начала i-й задачи расписания
+    static LocalDateTime slot(long index) {
+        return BASE.plusMinutes(index * STEP_MINUTES);
+    }
+
+    static Task task(long index, boolean scheduled) {
+        return new Task("Task " + index, "Description " + index, DURATION, scheduled ? slot(index) : null);
+    }
+
+    static Subtask subtask(long index, int epicId, boolean scheduled) {
+        return new Subtask("Subtask " + index, "Description " + index, epicId, DURATION,
+                scheduled ? slot(index) : null);
+    }
+
+    // Метод для заполнения менеджера обычными задачами одной пачкой
+    static void fillTasks(TaskManager manager, int count, boolean scheduled) {
+        manager.batch(m -> {
+            for (int i = 0; i < count; i++) {
+                m.createTask(task(i, scheduled));
+            }
+        });
+    }
+
+    // Метод для создания эпика с заданным числом подзадач
+    static Epic fillEpic(TaskManager manager, int subtasks, long firstIndex, boolean scheduled) {
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        manager.batch(m -> {
+            for (int i = 0; i < subtasks; i++) {
+                m.createSubtask(subtask(firstIndex + i, epic.getId(), scheduled));
+            }
+        });
+        return epic;
+    }
+}
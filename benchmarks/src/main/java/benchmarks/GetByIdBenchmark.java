@@ -0,0 +1,65 @@
+package benchmarks;
+
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.service.InMemoryTaskManager;
+import main.service.TaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Получение задач по ID со случайным доступом: каждое обращение записывается в историю просмотров
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GetByIdBenchmark {
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private TaskManager manager;
+    private int[] taskIds;
+    private int[] subtaskIds;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Fixtures.fillTasks(manager, size, false);
+        Epic epic = Fixtures.fillEpic(manager, size, size, false);
+        Random random = new Random(42);
+        taskIds = new int[LOOKUPS];
+        subtaskIds = new int[LOOKUPS];
+        int firstSubtaskId = epic.getId() + 1;
+        for (int i = 0; i < LOOKUPS; i++) {
+            taskIds[i] = 1 + random.nextInt(size);
+            subtaskIds[i] = firstSubtaskId + random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public Task getTaskById() {
+        return manager.getTaskById(taskIds[cursor++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Subtask getSubtaskById() {
+        return manager.getSubtaskById(subtaskIds[cursor++ & (LOOKUPS - 1)]);
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import main.model.Task;
+import main.service.BoundedHistoryManager;
+import main.service.ConcurrentHistoryManager;
+import main.service.HistoryManager;
+import main.service.InMemoryHistoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Добавление в историю и чтение истории для разных реализаций при заданном числе различных задач
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    private static final int VIEWS = 1 << 16;
+
+    @Param({"unbounded", "bounded", "concurrent"})
+    private String implementation;
+
+    @Param({"100", "10000"})
+    private int distinct;
+
+    private HistoryManager history;
+    private Task[] views;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        switch (implementation) {
+            case "bounded":
+                history = new BoundedHistoryManager(distinct);
+                break;
+            case "concurrent":
+                history = new ConcurrentHistoryManager();
+                break;
+            default:
+                history = new InMemoryHistoryManager();
+        }
+        Task[] tasks = new Task[distinct];
+        for (int i = 0; i < distinct; i++) {
+            tasks[i] = Fixtures.task(i, false);
+            tasks[i].setId(i + 1);
+            history.add(tasks[i]);
+        }
+        Random random = new Random(42);
+        views = new Task[VIEWS];
+        for (int i = 0; i < VIEWS; i++) {
+            views[i] = tasks[random.nextInt(distinct)];
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        history.add(views[cursor++ & (VIEWS - 1)]);
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import main.model.Task;
+import main.service.FileBackedTaskManager;
+import main.service.PersistenceMode;
+import main.service.SnapshotFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Сохранение и загрузка FileBackedTaskManager для файлов разного размера и формата.
+// save — изменение одной задачи в режиме SNAPSHOT (перезапись всего файла) или JOURNAL (дозапись строки),
+// load — loadFromFile снимка без журнала
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"CSV", "BINARY"})
+    private SnapshotFormat format;
+
+    @Param({"SNAPSHOT", "JOURNAL"})
+    private PersistenceMode mode;
+
+    private File snapshot;
+    private File working;
+    private FileBackedTaskManager manager;
+    private Task[] tasks;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws IOException {
+        snapshot = File.createTempFile("bench-snapshot", ".data");
+        try (FileBackedTaskManager source = new FileBackedTaskManager(snapshot, PersistenceMode.SNAPSHOT, format)) {
+            Fixtures.fillTasks(source, size, true);
+        }
+        working = File.createTempFile("bench-working", ".data");
+        manager = new FileBackedTaskManager(working, mode, format);
+        Fixtures.fillTasks(manager, size, true);
+        tasks = manager.getAllTasks().toArray(new Task[0]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Files.deleteIfExists(snapshot.toPath());
+        Files.deleteIfExists(working.toPath());
+        Files.deleteIfExists(working.toPath().resolveSibling(working.getName() + ".journal"));
+        Files.deleteIfExists(working.toPath().resolveSibling(working.getName() + ".journal.sealed"));
+    }
+
+    @Benchmark
+    public Task save() {
+        Task task = tasks[cursor++ % tasks.length];
+        task.setDescription("Updated " + cursor);
+        manager.updateTask(task);
+        return task;
+    }
+
+    @Benchmark
+    public int load() {
+        try (FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(snapshot, PersistenceMode.SNAPSHOT,
+                format)) {
+            return loaded.getAllTasks().size();
+        }
+    }
+}
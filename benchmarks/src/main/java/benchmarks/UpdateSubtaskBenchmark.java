@@ -0,0 +1,56 @@
+package benchmarks;
+
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.TaskStatus;
+import main.service.InMemoryTaskManager;
+import main.service.TaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Обновление подзадачи большого эпика: смена статуса пересчитывает статус и время эпика
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateSubtaskBenchmark {
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    @Param({"1000", "100000"})
+    private int subtasks;
+
+    private TaskManager manager;
+    private Subtask[] epicSubtasks;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Epic epic = Fixtures.fillEpic(manager, subtasks, 0, true);
+        List<Subtask> created = manager.getSubtasksForEpic(epic.getId());
+        epicSubtasks = created.toArray(new Subtask[0]);
+    }
+
+    @Benchmark
+    public Subtask updateSubtask() {
+        int index = cursor++ % epicSubtasks.length;
+        Subtask subtask = epicSubtasks[index];
+        subtask.setStatus(STATUSES[(subtask.getStatus().ordinal() + 1) % STATUSES.length]);
+        manager.updateSubtask(subtask);
+        return subtask;
+    }
+}
@@ -1,7 +1,16 @@
 package main;
 
+import main.http.HttpTaskServer;
+import main.util.Managers;
+
+import java.io.IOException;
+
+// Запуск: java -Dsun.net.httpserver.nodelay=true main.Main [порт]
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Трекер задач запущен!");
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : HttpTaskServer.DEFAULT_PORT;
+        HttpTaskServer server = new HttpTaskServer(Managers.getConcurrent(), port);
+        server.start();
+        System.out.println("Трекер задач запущен на порту " + server.getPort());
     }
 }
@@ -0,0 +1,9 @@
+package main.exception;
+
+public class ChangeFeedOverrunException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ChangeFeedOverrunException(String message) {
+        super(message);
+    }
+}
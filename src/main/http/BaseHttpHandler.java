@@ -0,0 +1,176 @@
+package main.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import main.exception.TaskTimeIntersectionException;
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.service.TaskManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Общая часть обработчиков: доступ к менеджеру, ответы в JSON и перевод исключений в коды HTTP.
+// 400 — некорректный запрос, 404 — нет задачи, 405 — неподдерживаемый метод, 406 — пересечение по времени
+abstract class BaseHttpHandler implements HttpHandler {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final TaskManager manager;
+    // Блокировка для менеджеров, не рассчитанных на многопоточный доступ; null — не нужна
+    private final Lock lock;
+
+    BaseHttpHandler(TaskManager manager, Lock lock) {
+        this.manager = manager;
+        this.lock = lock;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            process(exchange);
+        } catch (TaskTimeIntersectionException e) {
+            sendError(exchange, 406, e.getMessage());
+        } catch (NoSuchElementException e) {
+            sendError(exchange, 404, e.getMessage());
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Метод для обработки запроса конкретным обработчиком
+    protected abstract void process(HttpExchange exchange) throws IOException;
+
+    // Метод для вызова менеджера (под блокировкой, если она нужна)
+    protected <T> T call(Function<TaskManager, T> operation) {
+        if (lock == null) {
+            return operation.apply(manager);
+        }
+        lock.lock();
+        try {
+            return operation.apply(manager);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected void run(Consumer<TaskManager> operation) {
+        call(manager -> {
+            operation.accept(manager);
+            return null;
+        });
+    }
+
+    // Метод для копирования задач внутри вызова менеджера: хранимые объекты меняются следующими запросами,
+    // поэтому после снятия блокировки в ответ пишутся только копии
+    protected static List<Task> copies(TaskManager manager, List<? extends Task> tasks) {
+        List<Task> result = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            result.add(copy(manager, task));
+        }
+        return result;
+    }
+
+    // Состав подзадач эпика читается через менеджер: многопоточный менеджер меняет его на месте
+    // под своей блокировкой, и копировать его из выданного объекта небезопасно
+    protected static Task copy(TaskManager manager, Task task) {
+        if (!(task instanceof Epic)) {
+            return task.copy();
+        }
+        Epic copy = ((Epic) task).copyWithoutSubtasks();
+        for (Subtask subtask : manager.getSubtasksForEpic(task.getId())) {
+            copy.addSubtask(subtask.getId());
+        }
+        return copy;
+    }
+
+    // Метод для потоковой отправки JSON: тело пишется сразу в ответ без промежуточной строки
+    protected static void sendJson(HttpExchange exchange, int status, JsonBody body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        JsonWriter json = new JsonWriter(writer);
+        body.write(json);
+        json.flush();
+    }
+
+    // Метод для ответа без тела
+    protected static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    protected static void sendMethodNotAllowed(HttpExchange exchange) throws IOException {
+        sendError(exchange, 405, "Метод не поддерживается: " + exchange.getRequestMethod());
+    }
+
+    // Если ответ уже начат (ошибка при потоковой записи), остаётся только закрыть соединение
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        sendJson(exchange, status, json -> json.beginObject().name("error").value(message).endObject());
+    }
+
+    protected static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    // Метод для получения частей пути после пути обработчика: /tasks/5 → ["5"]
+    protected static String[] pathSegments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String context = exchange.getHttpContext().getPath();
+        String rest = path.length() > context.length() ? path.substring(context.length()) : "";
+        if (rest.startsWith("/")) {
+            rest = rest.substring(1);
+        }
+        if (rest.endsWith("/")) {
+            rest = rest.substring(0, rest.length() - 1);
+        }
+        return rest.isEmpty() ? new String[0] : rest.split("/");
+    }
+
+    protected static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    protected static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный ID: " + value);
+        }
+    }
+
+    // Тело ответа, записываемое потоком
+    interface JsonBody {
+        void write(JsonWriter json) throws IOException;
+    }
+}
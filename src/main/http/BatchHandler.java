@@ -0,0 +1,121 @@
+package main.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import main.model.Task;
+import main.model.TaskType;
+import main.service.TaskManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+
+// Обработчик POST /batch: массив операций выполняется одной пачкой менеджера (всё или ничего).
+// Операция: {"action": "create" | "update", "type": "TASK" | "EPIC" | "SUBTASK", "task": {...}}
+// или {"action": "delete", "type": ..., "id": N}. Ответ — массив {"action", "type", "id"} в порядке операций
+class BatchHandler extends BaseHttpHandler {
+    BatchHandler(TaskManager manager, Lock lock) {
+        super(manager, lock);
+    }
+
+    @Override
+    protected void process(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendMethodNotAllowed(exchange);
+            return;
+        }
+        if (pathSegments(exchange).length != 0) {
+            throw new NoSuchElementException("Неизвестный путь: " + exchange.getRequestURI().getPath());
+        }
+        Object body = JsonParser.parse(readBody(exchange));
+        if (!(body instanceof List)) {
+            throw new IllegalArgumentException("Ожидался JSON-массив операций");
+        }
+        // Запрос разбирается и проверяется целиком до того, как менеджер начнёт пачку
+        List<Operation> operations = new ArrayList<>();
+        for (Object item : (List<?>) body) {
+            operations.add(Operation.parse(item));
+        }
+        run(manager -> manager.batch(batch -> {
+            for (Operation operation : operations) {
+                operation.apply(batch);
+            }
+        }));
+        sendJson(exchange, 200, json -> {
+            json.beginArray();
+            for (Operation operation : operations) {
+                json.beginObject()
+                        .name("action").value(operation.action)
+                        .name("type").value(operation.type)
+                        .name("id").value(operation.id())
+                        .endObject();
+            }
+            json.endArray();
+        });
+    }
+
+    // Одна операция пачки
+    private static final class Operation {
+        private final String action;
+        private final TaskType type;
+        private final Task task;
+        private final int deletedId;
+
+        private Operation(String action, TaskType type, Task task, int deletedId) {
+            this.action = action;
+            this.type = type;
+            this.task = task;
+            this.deletedId = deletedId;
+        }
+
+        static Operation parse(Object item) {
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("Операция пачки должна быть JSON-объектом");
+            }
+            Map<?, ?> fields = (Map<?, ?>) item;
+            String action = TaskJson.string(fields, "action");
+            String typeName = TaskJson.string(fields, "type");
+            if (action == null || typeName == null) {
+                throw new IllegalArgumentException("У операции пачки должны быть поля action и type");
+            }
+            TaskType type = TaskType.valueOf(typeName);
+            switch (action) {
+                case "create":
+                case "update":
+                    Task task = TaskJson.read(fields.get("task"), type);
+                    if ((task.getId() == 0) != action.equals("create")) {
+                        throw new IllegalArgumentException("id задаётся только при обновлении");
+                    }
+                    return new Operation(action, type, task, 0);
+                case "delete":
+                    Long id = TaskJson.number(fields, "id");
+                    if (id == null) {
+                        throw new IllegalArgumentException("Не задано поле id");
+                    }
+                    return new Operation(action, type, null, Math.toIntExact(id));
+                default:
+                    throw new IllegalArgumentException("Неизвестное действие: " + action);
+            }
+        }
+
+        void apply(TaskManager manager) {
+            switch (action) {
+                case "create":
+                    TaskHandler.create(manager, task);
+                    break;
+                case "update":
+                    TaskHandler.update(manager, task);
+                    break;
+                default:
+                    TaskHandler.find(manager, type, deletedId);
+                    TaskHandler.delete(manager, type, deletedId);
+            }
+        }
+
+        int id() {
+            return task != null ? task.getId() : deletedId;
+        }
+    }
+}
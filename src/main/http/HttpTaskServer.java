@@ -0,0 +1,77 @@
+package main.http;
+
+import com.sun.net.httpserver.HttpServer;
+import main.model.TaskType;
+import main.service.ConcurrentTaskManager;
+import main.service.InstrumentedTaskManager;
+import main.service.TaskManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// HTTP-сервер менеджера задач на com.sun.net.httpserver с JSON в теле запросов и ответов.
+// Каждый запрос выполняется в своём виртуальном потоке. Менеджеры, не рассчитанные на многопоточность,
+// вызываются под общей блокировкой; ответы пишутся в сеть уже без неё.
+// Сервер стоит запускать с флагом -Dsun.net.httpserver.nodelay=true: без TCP_NODELAY заголовки и фрагменты
+// потокового ответа задерживаются алгоритмом Нейгла до подтверждения клиента (~40 мс на запрос)
+public class HttpTaskServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public HttpTaskServer(TaskManager manager) throws IOException {
+        this(manager, DEFAULT_PORT);
+    }
+
+    // Порт 0 — любой свободный, фактический возвращает getPort()
+    public HttpTaskServer(TaskManager manager, int port) throws IOException {
+        Lock lock = isThreadSafe(manager) ? null : new ReentrantLock();
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/tasks", new TaskHandler(manager, lock, TaskType.TASK));
+        server.createContext("/epics", new TaskHandler(manager, lock, TaskType.EPIC));
+        server.createContext("/subtasks", new TaskHandler(manager, lock, TaskType.SUBTASK));
+        server.createContext("/history", new ListHandler(manager, lock, false));
+        server.createContext("/prioritized", new ListHandler(manager, lock, true));
+        server.createContext("/batch", new BatchHandler(manager, lock));
+        server.createContext("/search", new SearchHandler(manager, lock));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Остановка ждёт завершения начатых запросов не дольше delaySeconds
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void stop() {
+        stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static boolean isThreadSafe(TaskManager manager) {
+        if (manager instanceof InstrumentedTaskManager) {
+            return isThreadSafe(((InstrumentedTaskManager) manager).getDelegate());
+        }
+        return manager instanceof ConcurrentTaskManager;
+    }
+}
@@ -0,0 +1,228 @@
+package main.http;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Минимальный разбор JSON тела запроса: объекты — LinkedHashMap, массивы — ArrayList, целые числа — Long,
+// дробные — Double. Некорректный ввод приводит к IllegalArgumentException с позицией ошибки
+public final class JsonParser {
+    private final String text;
+    private int position;
+
+    private JsonParser(String text) {
+        this.text = text;
+    }
+
+    // Метод для разбора документа целиком
+    public static Object parse(String text) {
+        JsonParser parser = new JsonParser(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("лишние символы после значения");
+        }
+        return value;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (position == text.length()) {
+            throw error("неожиданный конец");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                expect("true");
+                return Boolean.TRUE;
+            case 'f':
+                expect("false");
+                return Boolean.FALSE;
+            case 'n':
+                expect("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("неожиданный символ '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("ожидалось имя поля");
+            }
+            String name = readString();
+            skipWhitespace();
+            consume(':');
+            object.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+                continue;
+            }
+            consume('}');
+            return object;
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+                continue;
+            }
+            consume(']');
+            return array;
+        }
+    }
+
+    private String readString() {
+        position++;
+        StringBuilder value = null;
+        int start = position;
+        while (true) {
+            if (position >= text.length()) {
+                throw error("незакрытая строка");
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                String tail = text.substring(start, position++);
+                return value == null ? tail : value.append(tail).toString();
+            }
+            if (c == '\\') {
+                if (value == null) {
+                    value = new StringBuilder();
+                }
+                value.append(text, start, position);
+                value.append(readEscape());
+                start = position;
+                continue;
+            }
+            if (c < 0x20) {
+                throw error("управляющий символ в строке");
+            }
+            position++;
+        }
+    }
+
+    private char readEscape() {
+        position++;
+        if (position >= text.length()) {
+            throw error("незаконченная escape-последовательность");
+        }
+        char c = text.charAt(position++);
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (position + 4 > text.length()) {
+                    throw error("незаконченная escape-последовательность");
+                }
+                try {
+                    char decoded = (char) Integer.parseInt(text, position, position + 4, 16);
+                    position += 4;
+                    return decoded;
+                } catch (NumberFormatException e) {
+                    throw error("некорректная escape-последовательность");
+                }
+            default:
+                throw error("некорректная escape-последовательность");
+        }
+    }
+
+    private Object readNumber() {
+        int start = position;
+        boolean fraction = false;
+        if (peek() == '-') {
+            position++;
+        }
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                fraction = true;
+            } else if (c < '0' || c > '9') {
+                break;
+            }
+            position++;
+        }
+        try {
+            if (!fraction) {
+                return Long.parseLong(text, start, position, 10);
+            }
+            return Double.parseDouble(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("некорректное число");
+        }
+    }
+
+    private void expect(String literal) {
+        if (!text.startsWith(literal, position)) {
+            throw error("ожидалось " + literal);
+        }
+        position += literal.length();
+    }
+
+    private void consume(char expected) {
+        if (peek() != expected) {
+            throw error("ожидалось '" + expected + "'");
+        }
+        position++;
+    }
+
+    private int peek() {
+        return position < text.length() ? text.charAt(position) : -1;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String reason) {
+        return new IllegalArgumentException("Некорректный JSON (позиция " + position + "): " + reason);
+    }
+}
@@ -0,0 +1,185 @@
+package main.http;
+
+import main.util.TaskCsvCodec;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+
+// Потоковая запись JSON прямо в Writer тела ответа: строки экранируются и пишутся участками без копий,
+// числа и время форматируются в один переиспользуемый StringBuilder. Запятые между элементами
+// расставляются по стеку вложенности
+public final class JsonWriter implements Flushable {
+    private final Writer out;
+    private final StringBuilder scratch = new StringBuilder(40);
+    private final char[] scratchChars = new char[40];
+    // Есть ли уже элементы в объекте или массиве на каждом уровне вложенности
+    private boolean[] hasElements = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        depth--;
+        out.write('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        depth--;
+        out.write(']');
+        return this;
+    }
+
+    // Метод для записи имени поля объекта
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        scratch.setLength(0);
+        scratch.append(value);
+        writeScratch();
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    // Время пишется строкой в ISO-формате LocalDateTime
+    public JsonWriter value(LocalDateTime value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        scratch.setLength(0);
+        scratch.append('"');
+        TaskCsvCodec.appendDateTime(scratch, value);
+        scratch.append('"');
+        writeScratch();
+        return this;
+    }
+
+    public JsonWriter value(Enum<?> value) throws IOException {
+        return value == null ? nullValue() : value(value.name());
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void push() {
+        depth++;
+        if (depth == hasElements.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(hasElements, 0, grown, 0, depth);
+            hasElements = grown;
+        }
+        hasElements[depth] = false;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            separate();
+        }
+    }
+
+    private void separate() throws IOException {
+        if (hasElements[depth]) {
+            out.write(',');
+        }
+        hasElements[depth] = true;
+    }
+
+    private void writeScratch() throws IOException {
+        int length = scratch.length();
+        scratch.getChars(0, length, scratchChars, 0);
+        out.write(scratchChars, 0, length);
+    }
+
+    // Строка пишется участками между символами, требующими экранирования
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '\n') {
+                escape = "\\n";
+            } else if (c == '\r') {
+                escape = "\\r";
+            } else if (c == '\t') {
+                escape = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                escape = null;
+            } else {
+                continue;
+            }
+            out.write(value, start, i - start);
+            if (escape != null) {
+                out.write(escape);
+            } else {
+                out.write("\\u");
+                String hex = Integer.toHexString(c);
+                for (int pad = hex.length(); pad < 4; pad++) {
+                    out.write('0');
+                }
+                out.write(hex);
+            }
+            start = i + 1;
+        }
+        out.write(value, start, length - start);
+        out.write('"');
+    }
+}
@@ -0,0 +1,64 @@
+package main.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import main.model.Task;
+import main.service.TaskManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+
+// Обработчик списков только для чтения: GET /history и GET /prioritized.
+// /prioritized?from=...&to=... — задачи, пересекающиеся с окном, /prioritized?after=...&limit=N — ближайшие N
+class ListHandler extends BaseHttpHandler {
+    private final boolean prioritized;
+
+    ListHandler(TaskManager manager, Lock lock, boolean prioritized) {
+        super(manager, lock);
+        this.prioritized = prioritized;
+    }
+
+    @Override
+    protected void process(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendMethodNotAllowed(exchange);
+            return;
+        }
+        if (pathSegments(exchange).length != 0) {
+            throw new NoSuchElementException("Неизвестный путь: " + exchange.getRequestURI().getPath());
+        }
+        List<Task> tasks = prioritized ? prioritized(queryParameters(exchange))
+                : call(manager -> copies(manager, manager.getHistory()));
+        sendJson(exchange, 200, json -> TaskJson.writeAll(json, tasks));
+    }
+
+    private List<Task> prioritized(Map<String, String> query) {
+        if (query.containsKey("from") || query.containsKey("to")) {
+            LocalDateTime from = time(query, "from");
+            LocalDateTime to = time(query, "to");
+            return call(manager -> copies(manager, manager.getPrioritizedTasks(from, to)));
+        }
+        if (query.containsKey("after")) {
+            LocalDateTime after = time(query, "after");
+            int limit = query.containsKey("limit") ? parseId(query.get("limit")) : Integer.MAX_VALUE;
+            return call(manager -> copies(manager, manager.nextTasks(after, limit)));
+        }
+        return call(manager -> copies(manager, manager.getPrioritizedTasks()));
+    }
+
+    private static LocalDateTime time(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Не задан параметр " + name);
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректное время в параметре " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package main.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import main.model.Task;
+import main.service.TaskManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+
+// Обработчик полнотекстового поиска: GET /search?q=...&limit=N — задачи всех типов по убыванию релевантности
+class SearchHandler extends BaseHttpHandler {
+    private static final int DEFAULT_LIMIT = 20;
+
+    SearchHandler(TaskManager manager, Lock lock) {
+        super(manager, lock);
+    }
+
+    @Override
+    protected void process(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendMethodNotAllowed(exchange);
+            return;
+        }
+        if (pathSegments(exchange).length != 0) {
+            throw new NoSuchElementException("Неизвестный путь: " + exchange.getRequestURI().getPath());
+        }
+        Map<String, String> query = queryParameters(exchange);
+        String text = query.get("q");
+        if (text == null) {
+            throw new IllegalArgumentException("Не задан параметр q");
+        }
+        int limit = query.containsKey("limit") ? parseId(query.get("limit")) : DEFAULT_LIMIT;
+        List<Task> tasks = call(manager -> copies(manager, manager.search(text, limit)));
+        sendJson(exchange, 200, json -> TaskJson.writeAll(json, tasks));
+    }
+}
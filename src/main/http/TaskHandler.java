@@ -0,0 +1,192 @@
+package main.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.model.TaskStatus;
+import main.model.TaskType;
+import main.service.TaskManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+
+// Обработчик /tasks, /epics и /subtasks:
+// GET /{type} — все задачи типа, GET /{type}?status=DONE — задачи типа с указанным статусом, GET /{type}/{id} — одна задача (попадает в историю),
+// GET /epics/{id}/subtasks — подзадачи эпика, POST /{type} — создание (без id, 201) или обновление (с id, 200),
+// DELETE /{type}/{id} — удаление задачи, DELETE /{type} — удаление всех задач типа
+class TaskHandler extends BaseHttpHandler {
+    private final TaskType type;
+
+    TaskHandler(TaskManager manager, Lock lock, TaskType type) {
+        super(manager, lock);
+        this.type = type;
+    }
+
+    @Override
+    protected void process(HttpExchange exchange) throws IOException {
+        String[] path = pathSegments(exchange);
+        switch (exchange.getRequestMethod()) {
+            case "GET":
+                if (path.length == 0) {
+                    String status = queryParameters(exchange).get("status");
+                    List<Task> all = status == null
+                            ? call(manager -> copies(manager, getAll(manager, type)))
+                            : call(manager -> copies(manager, getByStatus(manager, type, TaskStatus.valueOf(status))));
+                    sendJson(exchange, 200, json -> TaskJson.writeAll(json, all));
+                } else if (path.length == 1) {
+                    int id = parseId(path[0]);
+                    Task task = call(manager -> {
+                        Task stored = get(manager, type, id);
+                        return stored == null ? null : copy(manager, stored);
+                    });
+                    if (task == null) {
+                        throw new NoSuchElementException("Задача не найдена: " + id);
+                    }
+                    sendJson(exchange, 200, json -> TaskJson.write(json, task));
+                } else if (path.length == 2 && type == TaskType.EPIC && path[1].equals("subtasks")) {
+                    int id = parseId(path[0]);
+                    List<Task> subtasks = call(manager -> {
+                        find(manager, TaskType.EPIC, id);
+                        return copies(manager, manager.getSubtasksForEpic(id));
+                    });
+                    sendJson(exchange, 200, json -> TaskJson.writeAll(json, subtasks));
+                } else {
+                    throw new NoSuchElementException("Неизвестный путь: " + exchange.getRequestURI().getPath());
+                }
+                break;
+            case "POST":
+                if (path.length != 0) {
+                    throw new NoSuchElementException("Неизвестный путь: " + exchange.getRequestURI().getPath());
+                }
+                Task task = TaskJson.read(JsonParser.parse(readBody(exchange)), type);
+                boolean created = task.getId() == 0;
+                // После вызова объект принадлежит менеджеру, поэтому в ответ пишется копия, снятая под блокировкой
+                Task stored = call(manager -> {
+                    if (created) {
+                        create(manager, task);
+                    } else {
+                        update(manager, task);
+                    }
+                    return copy(manager, task);
+                });
+                sendJson(exchange, created ? 201 : 200, json -> TaskJson.write(json, stored));
+                break;
+            case "DELETE":
+                if (path.length == 0) {
+                    run(manager -> deleteAll(manager, type));
+                } else if (path.length == 1) {
+                    int id = parseId(path[0]);
+                    run(manager -> {
+                        find(manager, type, id);
+                        delete(manager, type, id);
+                    });
+                } else {
+                    throw new NoSuchElementException("Неизвестный путь: " + exchange.getRequestURI().getPath());
+                }
+                sendEmpty(exchange, 200);
+                break;
+            default:
+                sendMethodNotAllowed(exchange);
+        }
+    }
+
+    static List<? extends Task> getAll(TaskManager manager, TaskType type) {
+        switch (type) {
+            case TASK:
+                return manager.getAllTasks();
+            case EPIC:
+                return manager.getAllEpics();
+            default:
+                return manager.getAllSubtasks();
+        }
+    }
+
+    static List<? extends Task> getByStatus(TaskManager manager, TaskType type, TaskStatus status) {
+        switch (type) {
+            case TASK:
+                return manager.getTasksByStatus(status);
+            case EPIC:
+                return manager.getEpicsByStatus(status);
+            default:
+                return manager.getSubtasksByStatus(status);
+        }
+    }
+
+    static Task get(TaskManager manager, TaskType type, int id) {
+        switch (type) {
+            case TASK:
+                return manager.getTaskById(id);
+            case EPIC:
+                return manager.getEpicById(id);
+            default:
+                return manager.getSubtaskById(id);
+        }
+    }
+
+    // Поиск задачи указанного типа по ID без записи в историю
+    static Task find(TaskManager manager, TaskType type, int id) {
+        Task task = manager.findTask(id);
+        if (task == null || task.getType() != type) {
+            throw new NoSuchElementException("Задача не найдена: " + id);
+        }
+        return task;
+    }
+
+    static void create(TaskManager manager, Task task) {
+        switch (task.getType()) {
+            case TASK:
+                manager.createTask(task);
+                break;
+            case EPIC:
+                manager.createEpic((Epic) task);
+                break;
+            default:
+                manager.createSubtask((Subtask) task);
+        }
+    }
+
+    // Обновление существующей задачи. Эпик из запроса не знает своих подзадач: менеджер переносит их
+    // со старого объекта и пересчитывает статус и время
+    static void update(TaskManager manager, Task task) {
+        find(manager, task.getType(), task.getId());
+        switch (task.getType()) {
+            case TASK:
+                manager.updateTask(task);
+                break;
+            case EPIC:
+                manager.updateEpic((Epic) task);
+                break;
+            default:
+                manager.updateSubtask((Subtask) task);
+        }
+    }
+
+    static void delete(TaskManager manager, TaskType type, int id) {
+        switch (type) {
+            case TASK:
+                manager.deleteTaskById(id);
+                break;
+            case EPIC:
+                manager.deleteEpicById(id);
+                break;
+            default:
+                manager.deleteSubtaskById(id);
+        }
+    }
+
+    static void deleteAll(TaskManager manager, TaskType type) {
+        switch (type) {
+            case TASK:
+                manager.deleteAllTasks();
+                break;
+            case EPIC:
+                manager.deleteAllEpics();
+                break;
+            default:
+                manager.deleteAllSubtasks();
+        }
+    }
+}
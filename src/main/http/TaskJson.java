@@ -0,0 +1,141 @@
+package main.http;
+
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.model.TaskStatus;
+import main.model.TaskType;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Map;
+
+// Представление задач в JSON: {"id", "type", "name", "description", "status", "duration" (ISO-8601, например
+// "PT1M30S"; при чтении принимается и целое число минут), "startTime", "endTime", "epicId" у подзадачи,
+// "subtaskIds" у эпика}
+final class TaskJson {
+    private TaskJson() {
+    }
+
+    // Метод для записи задачи
+    static void write(JsonWriter json, Task task) throws IOException {
+        json.beginObject()
+                .name("id").value(task.getId())
+                .name("type").value(task.getType())
+                .name("name").value(task.getName())
+                .name("description").value(task.getDescription())
+                .name("status").value(task.getStatus());
+        json.name("duration");
+        if (task.hasDuration()) {
+            json.value(task.getDuration().toString());
+        } else {
+            json.nullValue();
+        }
+        json.name("startTime").value(task.getStartTime())
+                .name("endTime").value(task.getEndTime());
+        if (task instanceof Subtask) {
+            json.name("epicId").value(((Subtask) task).getEpicId());
+        } else if (task instanceof Epic) {
+            // Копия ID: подзадачи эпика могут меняться другим запросом, пока ответ пишется в сеть
+            json.name("subtaskIds").beginArray();
+            for (int id : ((Epic) task).getSubtaskIds()) {
+                json.value(id);
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    // Метод для записи списка задач
+    static void writeAll(JsonWriter json, Collection<? extends Task> tasks) throws IOException {
+        json.beginArray();
+        for (Task task : tasks) {
+            write(json, task);
+        }
+        json.endArray();
+    }
+
+    // Метод для чтения задачи указанного типа из разобранного JSON-объекта; id > 0 — обновление
+    static Task read(Object value, TaskType type) {
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Ожидался JSON-объект задачи");
+        }
+        Map<?, ?> fields = (Map<?, ?>) value;
+        String name = string(fields, "name");
+        if (name == null) {
+            throw new IllegalArgumentException("Не задано поле name");
+        }
+        String description = string(fields, "description");
+        Duration duration = duration(fields);
+        String start = string(fields, "startTime");
+        LocalDateTime startTime;
+        try {
+            startTime = start == null ? null : LocalDateTime.parse(start);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректное время начала: " + start);
+        }
+
+        Task task;
+        switch (type) {
+            case TASK:
+                task = new Task(name, description, duration, startTime);
+                break;
+            case EPIC:
+                task = new Epic(name, description);
+                break;
+            default:
+                Long epicId = number(fields, "epicId");
+                if (epicId == null) {
+                    throw new IllegalArgumentException("Не задано поле epicId");
+                }
+                task = new Subtask(name, description, Math.toIntExact(epicId), duration, startTime);
+        }
+        Long id = number(fields, "id");
+        if (id != null) {
+            task.setId(Math.toIntExact(id));
+        }
+        String status = string(fields, "status");
+        if (status != null) {
+            task.setStatus(TaskStatus.valueOf(status));
+        }
+        return task;
+    }
+
+    // Продолжительность в ISO-8601 или, как в прежнем формате, целым числом минут
+    static Duration duration(Map<?, ?> fields) {
+        Object value = fields.get("duration");
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Long) {
+            return Duration.ofMinutes((Long) value);
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Поле duration должно быть строкой ISO-8601 или целым числом минут");
+        }
+        try {
+            return Duration.parse((String) value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректная продолжительность: " + value);
+        }
+    }
+
+    static String string(Map<?, ?> fields, String name) {
+        Object value = fields.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Поле " + name + " должно быть строкой");
+        }
+        return (String) value;
+    }
+
+    static Long number(Map<?, ?> fields, String name) {
+        Object value = fields.get(name);
+        if (value != null && !(value instanceof Long)) {
+            throw new IllegalArgumentException("Поле " + name + " должно быть целым числом");
+        }
+        return (Long) value;
+    }
+}
@@ -1,18 +1,43 @@
 package main.model;
 
+import main.util.IntOrderedSet;
+
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
 
 public class Epic extends Task {
-    private final List<Integer> subtasksId;
-    private LocalDateTime endTime;
+    // ID подзадач в порядке добавления
+    private final IntOrderedSet subtasksId;
+    // Учтённое состояние каждой подзадачи (статус, время, продолжительность) и итоги по ним:
+    // при изменении подзадачи её старый вклад вычитается, крайние времена доступны за O(1)
+    private final SubtaskRollup rollup = new SubtaskRollup();
 
     public Epic(String name, String description) {
         super(name, description, Duration.ZERO, null);
         this.type = TaskType.EPIC;
-        this.subtasksId = new ArrayList<>();
+        this.subtasksId = new IntOrderedSet();
+    }
+
+    // Копия хранит ID подзадач и итоговые статус и время, но не учтённые показатели подзадач
+    @Override
+    public Epic copy() {
+        Epic copy = copyWithoutSubtasks();
+        forEachSubtaskId(copy::addSubtask);
+        return copy;
+    }
+
+    // Копия итоговых статуса и времени без ID подзадач: O(1) независимо от размера эпика
+    public Epic copyWithoutSubtasks() {
+        Epic copy = new Epic(getName(), getDescription());
+        copyStateTo(copy);
+        copy.setStartTime(getStartTime());
+        copy.setDuration(getDuration());
+        copy.setEndTime(getEndTime());
+        return copy;
     }
 
     //  Геттер id
@@ -29,32 +54,87 @@ public class Epic extends Task {
 
     // Метод для получения списка id подзад
     public List<Integer> getSubtasks() {
-        return new ArrayList<>(subtasksId);
+        List<Integer> result = new ArrayList<>(subtasksId.size());
+        subtasksId.forEach(result::add);
+        return result;
+    }
+
+    // Метод для обхода id подзадач без копирования и упаковки
+    public void forEachSubtaskId(IntConsumer action) {
+        subtasksId.forEach(action);
+    }
+
+    // Итератор id подзадач только для чтения
+    public PrimitiveIterator.OfInt subtaskIdIterator() {
+        return subtasksId.iterator();
+    }
+
+    // Копия id подзадач в виде массива
+    public int[] getSubtaskIds() {
+        return subtasksId.toArray();
+    }
+
+    // Метод проверки, принадлежит ли подзадача эпику
+    public boolean hasSubtask(int subtaskId) {
+        return subtasksId.contains(subtaskId);
+    }
+
+    public int getSubtaskCount() {
+        return subtasksId.size();
     }
 
     // Метод для удаления подзадачи
     public void removeSubtask(int subtaskId) {
-        subtasksId.remove(Integer.valueOf(subtaskId));
+        subtasksId.remove(subtaskId);
+        rollup.remove(subtaskId);
     }
 
     // Метод для удаления всех подзадач
     public void removeAllSubtasks() {
         subtasksId.clear();
+        resetSubtaskCounts();
     }
 
-    // Метод для изменения времени завершения
-    public void setEndTime(LocalDateTime endTime) {
-        this.endTime = endTime;
+    // Метод для учёта подзадачи в статусе и времени эпика: при повторном учёте
+    // старый вклад подзадачи вычитается, новый добавляется
+    public void countSubtask(Subtask subtask) {
+        rollup.put(subtask);
     }
 
-    // Геттер времени завершения эпика
-    @Override
-    public LocalDateTime getEndTime() {
-        return endTime;
+    // Метод проверки, учтена ли подзадача в показателях эпика
+    public boolean isSubtaskCounted(int subtaskId) {
+        return rollup.contains(subtaskId);
     }
 
-    @Override
-    public String toString() {
-        return String.format("%d,%s,%s,%s,%s,%d,%s", getId(), getType(), getName(), getStatus(), getDescription(), getDuration() != null ? getDuration().toMinutes() : 0, getStartTime() != null ? getStartTime() : "");
+    // Метод для сброса учтённых показателей перед полным пересчётом
+    public void resetSubtaskCounts() {
+        rollup.clear();
+    }
+
+    // Метод для вычисления статуса эпика по счётчикам за O(1)
+    public TaskStatus calculateStatus() {
+        int total = rollup.size();
+        if (total == rollup.statusCount(TaskStatus.NEW)) {
+            return TaskStatus.NEW;
+        }
+        if (total == rollup.statusCount(TaskStatus.DONE)) {
+            return TaskStatus.DONE;
+        }
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    // Метод для применения учтённых показателей подзадач: статуса, времени начала и окончания, продолжительности.
+    // Окончание эпика — самое позднее окончание подзадач, а не начало плюс суммарная продолжительность
+    public void applySubtaskRollup() {
+        setStatus(calculateStatus());
+        boolean hasStart = rollup.hasStart();
+        assignTimes(hasStart, hasStart ? rollup.earliestStartSecond() : 0, hasStart ? rollup.earliestStartNano() : 0,
+                rollup.totalDurationSeconds(), rollup.totalDurationNanos(),
+                hasStart ? rollup.latestEndSecond() : 0, hasStart ? rollup.latestEndNano() : 0);
+    }
+
+    // Метод для изменения времени завершения
+    public void setEndTime(LocalDateTime endTime) {
+        assignEndTime(endTime);
     }
 }
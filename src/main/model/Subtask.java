@@ -12,21 +12,15 @@ public class Subtask extends Task {
         this.epicId = epicId;
     }
 
+    @Override
+    public Subtask copy() {
+        Subtask copy = new Subtask(getName(), getDescription(), epicId, getDuration(), getStartTime());
+        copyStateTo(copy);
+        return copy;
+    }
+
     // Метод для получения id эпика
     public int getEpicId() {
         return epicId;
     }
-
-    @Override
-    public String toString() {
-        return String.format("%d,%s,%s,%s,%s,%d,%s,%d",
-            getId(),
-            getType(),
-            getName(),
-            getStatus(),
-            getDescription(),
-            getDuration() != null ? getDuration().toMinutes() : 0,
-            getStartTime() != null ? getStartTime() : "",
-            epicId);
-    }
 }
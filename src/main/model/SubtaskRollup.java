@@ -0,0 +1,344 @@
+package main.model;
+
+import java.util.Arrays;
+
+// Учтённые показатели подзадач эпика без упаковки и выделения памяти на каждый учёт.
+// Состояние подзадачи лежит в параллельных примитивных массивах по номеру слота, слот ищется по ID
+// в хеш-таблице с открытой адресацией. Самое раннее начало и самое позднее окончание — вершины двух
+// индексированных двоичных куч по секундам и наносекундам: учёт и вычитание подзадачи — O(log k)
+final class SubtaskRollup {
+    private static final int NONE = -1;
+    private static final int MIN_CAPACITY = 4;
+    private static final int NANOS_PER_SECOND = 1_000_000_000;
+
+    // Хеш-таблица ID → слот с линейным пробированием; массивы создаются при первом учёте
+    private int[] keys;
+    private int[] slotOf;
+    private int mask;
+    // Состояние подзадачи по слоту: статус и продолжительность (начало и окончание хранят кучи)
+    private byte[] statuses;
+    private boolean[] hasDuration;
+    private long[] durationSeconds;
+    private int[] durationNanos;
+    // Освобождённые слоты и граница ещё не использованных
+    private int[] freeSlots;
+    private int freeCount;
+    private int usedSlots;
+    private final TimeHeap starts = new TimeHeap(false);
+    private final TimeHeap ends = new TimeHeap(true);
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private int size;
+    private long totalSeconds;
+    private int totalNanos;
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return keys != null && find(id) != NONE;
+    }
+
+    int statusCount(TaskStatus status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    // Метод для учёта подзадачи: старый вклад, если подзадача уже учтена, вычитается
+    void put(Subtask subtask) {
+        remove(subtask.getId());
+        ensureCapacity();
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : usedSlots++;
+        insert(subtask.getId(), slot);
+        size++;
+        int status = subtask.getStatus().ordinal();
+        statuses[slot] = (byte) status;
+        statusCounts[status]++;
+        if (subtask.hasStartTime()) {
+            starts.add(slot, subtask.getStartEpochSecond(), subtask.getStartNano());
+            ends.add(slot, subtask.getEndEpochSecond(), subtask.getEndNano());
+        }
+        hasDuration[slot] = subtask.hasDuration();
+        if (hasDuration[slot]) {
+            durationSeconds[slot] = subtask.getDurationSeconds();
+            durationNanos[slot] = subtask.getDurationNano();
+            addDuration(durationSeconds[slot], durationNanos[slot]);
+        }
+    }
+
+    // Метод для вычитания вклада подзадачи; возвращает false, если подзадача не была учтена
+    boolean remove(int id) {
+        if (keys == null) {
+            return false;
+        }
+        int slot = delete(id);
+        if (slot == NONE) {
+            return false;
+        }
+        size--;
+        statusCounts[statuses[slot]]--;
+        starts.remove(slot);
+        ends.remove(slot);
+        if (hasDuration[slot]) {
+            addDuration(-durationSeconds[slot] - (durationNanos[slot] > 0 ? 1 : 0),
+                    durationNanos[slot] > 0 ? NANOS_PER_SECOND - durationNanos[slot] : 0);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    void clear() {
+        if (keys == null) {
+            return;
+        }
+        Arrays.fill(slotOf, NONE);
+        Arrays.fill(statusCounts, 0);
+        starts.clear();
+        ends.clear();
+        freeCount = 0;
+        usedSlots = 0;
+        size = 0;
+        totalSeconds = 0;
+        totalNanos = 0;
+    }
+
+    boolean hasStart() {
+        return !starts.isEmpty();
+    }
+
+    long earliestStartSecond() {
+        return starts.topSecond();
+    }
+
+    int earliestStartNano() {
+        return starts.topNano();
+    }
+
+    long latestEndSecond() {
+        return ends.topSecond();
+    }
+
+    int latestEndNano() {
+        return ends.topNano();
+    }
+
+    long totalDurationSeconds() {
+        return totalSeconds;
+    }
+
+    int totalDurationNanos() {
+        return totalNanos;
+    }
+
+    // Сложение с нормализованной продолжительностью (наносекунды от 0 до 999 999 999)
+    private void addDuration(long seconds, int nanos) {
+        totalSeconds += seconds;
+        totalNanos += nanos;
+        if (totalNanos >= NANOS_PER_SECOND) {
+            totalNanos -= NANOS_PER_SECOND;
+            totalSeconds++;
+        }
+    }
+
+    private void ensureCapacity() {
+        if (keys == null) {
+            allocateTable(MIN_CAPACITY * 2);
+            allocateSlots(MIN_CAPACITY);
+            return;
+        }
+        if (freeCount == 0 && usedSlots == statuses.length) {
+            allocateSlots(statuses.length * 2);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void allocateSlots(int capacity) {
+        statuses = statuses == null ? new byte[capacity] : Arrays.copyOf(statuses, capacity);
+        hasDuration = hasDuration == null ? new boolean[capacity] : Arrays.copyOf(hasDuration, capacity);
+        durationSeconds = durationSeconds == null ? new long[capacity] : Arrays.copyOf(durationSeconds, capacity);
+        durationNanos = durationNanos == null ? new int[capacity] : Arrays.copyOf(durationNanos, capacity);
+        freeSlots = freeSlots == null ? new int[capacity] : Arrays.copyOf(freeSlots, capacity);
+        starts.grow(capacity);
+        ends.grow(capacity);
+    }
+
+    private void allocateTable(int tableSize) {
+        keys = new int[tableSize];
+        slotOf = new int[tableSize];
+        Arrays.fill(slotOf, NONE);
+        mask = tableSize - 1;
+    }
+
+    private void rehash(int tableSize) {
+        int[] oldKeys = keys;
+        int[] oldSlots = slotOf;
+        allocateTable(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] != NONE) {
+                insert(oldKeys[i], oldSlots[i]);
+            }
+        }
+    }
+
+    private int bucket(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private int find(int id) {
+        for (int i = bucket(id); slotOf[i] != NONE; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return slotOf[i];
+            }
+        }
+        return NONE;
+    }
+
+    private void insert(int id, int slot) {
+        int i = bucket(id);
+        while (slotOf[i] != NONE) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        slotOf[i] = slot;
+    }
+
+    // Удаление ключа со сдвигом следующих записей цепочки назад, как в IntOrderedSet
+    private int delete(int id) {
+        int i = bucket(id);
+        while (slotOf[i] != NONE && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        int slot = slotOf[i];
+        if (slot == NONE) {
+            return NONE;
+        }
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slotOf[j] == NONE) {
+                break;
+            }
+            int home = bucket(keys[j]);
+            boolean stays = i < j ? home > i && home <= j : home > i || home <= j;
+            if (!stays) {
+                keys[i] = keys[j];
+                slotOf[i] = slotOf[j];
+                i = j;
+            }
+        }
+        slotOf[i] = NONE;
+        return slot;
+    }
+
+    // Индексированная двоичная куча слотов по моменту времени: вершина — самый ранний (или самый поздний) момент,
+    // позиция каждого слота в куче известна, поэтому удаление произвольного слота — O(log k)
+    private static final class TimeHeap {
+        private final boolean latestFirst;
+        private long[] seconds;
+        private int[] nanos;
+        private int[] heap;
+        private int[] positions;
+        private int size;
+
+        TimeHeap(boolean latestFirst) {
+            this.latestFirst = latestFirst;
+        }
+
+        void grow(int capacity) {
+            int previous = positions == null ? 0 : positions.length;
+            seconds = seconds == null ? new long[capacity] : Arrays.copyOf(seconds, capacity);
+            nanos = nanos == null ? new int[capacity] : Arrays.copyOf(nanos, capacity);
+            heap = heap == null ? new int[capacity] : Arrays.copyOf(heap, capacity);
+            positions = positions == null ? new int[capacity] : Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, previous, capacity, NONE);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long topSecond() {
+            return seconds[heap[0]];
+        }
+
+        int topNano() {
+            return nanos[heap[0]];
+        }
+
+        void add(int slot, long second, int nano) {
+            seconds[slot] = second;
+            nanos[slot] = nano;
+            heap[size] = slot;
+            positions[slot] = size;
+            siftUp(size++);
+        }
+
+        void remove(int slot) {
+            int position = positions[slot];
+            if (position == NONE) {
+                return;
+            }
+            positions[slot] = NONE;
+            int last = heap[--size];
+            if (position == size) {
+                return;
+            }
+            heap[position] = last;
+            positions[last] = position;
+            siftDown(position);
+            siftUp(position);
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                positions[heap[i]] = NONE;
+            }
+            size = 0;
+        }
+
+        // Слот a должен стоять выше слота b
+        private boolean before(int a, int b) {
+            int compared = Task.compareTime(seconds[a], nanos[a], seconds[b], nanos[b]);
+            return latestFirst ? compared > 0 : compared < 0;
+        }
+
+        private void siftUp(int position) {
+            int slot = heap[position];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (!before(slot, heap[parent])) {
+                    break;
+                }
+                place(heap[parent], position);
+                position = parent;
+            }
+            place(slot, position);
+        }
+
+        private void siftDown(int position) {
+            int slot = heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], slot)) {
+                    break;
+                }
+                place(heap[child], position);
+                position = child;
+            }
+            place(slot, position);
+        }
+
+        private void place(int slot, int position) {
+            heap[position] = slot;
+            positions[slot] = position;
+        }
+    }
+}
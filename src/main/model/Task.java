@@ -1,25 +1,52 @@
 package main.model;
 
+import main.util.TaskCsvCodec;
+
 import java.util.Objects;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 public class Task {
+    // Значение «нет времени» для примитивных полей
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NANOS_PER_SECOND = 1_000_000_000;
+
     protected int id;
     private String name;
     private String description;
     private TaskStatus status;
     protected TaskType type;
-    private Duration duration;
-    private LocalDateTime startTime;
+    // Время хранится только примитивами: секунды от 1970-01-01T00:00 (время без часового пояса) и наносекунды,
+    // окончание вычисляется при изменении начала или продолжительности. Сравнения идут по примитивам,
+    // а LocalDateTime и Duration — адаптеры для внешнего кода, создаваемые при каждом обращении
+    private long startSecond = NO_TIME;
+    private int startNano;
+    private long durationSecond = NO_TIME;
+    private int durationNano;
+    private long endSecond = NO_TIME;
+    private int endNano;
 
     public Task(String name, String description, Duration duration, LocalDateTime startTime) {
         this.name = name;
         this.description = description;
         this.status = TaskStatus.NEW;
         this.type = TaskType.TASK;
-        this.duration = duration;
-        this.startTime = startTime;
+        assignDuration(duration);
+        assignStart(startTime);
+        updateEndTime();
+    }
+
+    // Метод для получения копии задачи с текущими значениями полей: снимок состояния, не связанный с менеджером
+    public Task copy() {
+        Task copy = new Task(name, description, getDuration(), getStartTime());
+        copyStateTo(copy);
+        return copy;
+    }
+
+    protected void copyStateTo(Task copy) {
+        copy.id = id;
+        copy.status = status;
     }
 
     // Геттер id задачи
@@ -67,39 +94,136 @@ public class Task {
         return type;
     }
 
-    // Геттер времени даты и времени завершения задачи
+    // Геттер времени завершения задачи; задача без продолжительности занимает один момент времени
     public LocalDateTime getEndTime() {
-        if (startTime == null) {
-            return null;
-        }
-        return startTime.plus(duration);
+        return endSecond == NO_TIME ? null : LocalDateTime.ofEpochSecond(endSecond, endNano, ZoneOffset.UTC);
     }
 
     // Геттер времени начала задачи
     public LocalDateTime getStartTime() {
-        return startTime;
+        return startSecond == NO_TIME ? null : LocalDateTime.ofEpochSecond(startSecond, startNano, ZoneOffset.UTC);
     }
 
     // Геттер продолжительности задачи
     public Duration getDuration() {
-        return duration;
+        return durationSecond == NO_TIME ? null : Duration.ofSeconds(durationSecond, durationNano);
     }
 
     public void setDuration(Duration duration) {
-        this.duration = duration;
+        assignDuration(duration);
+        updateEndTime();
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        assignStart(startTime);
+        updateEndTime();
+    }
+
+    public boolean hasStartTime() {
+        return startSecond != NO_TIME;
+    }
+
+    public boolean hasDuration() {
+        return durationSecond != NO_TIME;
     }
 
+    // Примитивные геттеры времени: имеют смысл, только если hasStartTime() (hasDuration() для продолжительности)
+    public long getStartEpochSecond() {
+        return startSecond;
+    }
+
+    public int getStartNano() {
+        return startNano;
+    }
+
+    public long getEndEpochSecond() {
+        return endSecond;
+    }
+
+    public int getEndNano() {
+        return endNano;
+    }
+
+    public long getDurationSeconds() {
+        return durationSecond;
+    }
+
+    public int getDurationNano() {
+        return durationNano;
+    }
+
+    // Метод для сравнения времени начала двух задач, у которых оно задано
+    public int compareStartTo(Task other) {
+        return compareTime(startSecond, startNano, other.startSecond, other.startNano);
+    }
+
+    // Метод для сравнения двух моментов в виде секунд и наносекунд
+    public static int compareTime(long second, int nano, long otherSecond, int otherNano) {
+        int bySecond = Long.compare(second, otherSecond);
+        return bySecond != 0 ? bySecond : Integer.compare(nano, otherNano);
+    }
+
+    // Интервалы считаются включительно: касание концами — тоже пересечение
     public boolean hasTimeIntersection(Task other) {
-        if (this.startTime == null || other.startTime == null) {
+        if (!hasStartTime() || !other.hasStartTime()) {
             return false;
         }
-        LocalDateTime thisEnd = this.getEndTime();
-        LocalDateTime otherEnd = other.getEndTime();
-        return !this.startTime.isAfter(otherEnd) && !thisEnd.isBefore(other.startTime);
+        return compareTime(startSecond, startNano, other.endSecond, other.endNano) <= 0
+                && compareTime(endSecond, endNano, other.startSecond, other.startNano) >= 0;
+    }
+
+    // Метод для пересчёта окончания после изменения начала или продолжительности
+    private void updateEndTime() {
+        if (startSecond == NO_TIME) {
+            assignEnd(NO_TIME, 0);
+            return;
+        }
+        if (durationSecond == NO_TIME) {
+            assignEnd(startSecond, startNano);
+            return;
+        }
+        long second = startSecond + durationSecond;
+        int nano = startNano + durationNano;
+        if (nano >= NANOS_PER_SECOND) {
+            second++;
+            nano -= NANOS_PER_SECOND;
+        }
+        assignEnd(second, nano);
+    }
+
+    // Метод для установки окончания, которое не выводится из начала и продолжительности (у эпика)
+    protected void assignEndTime(LocalDateTime endTime) {
+        if (endTime == null) {
+            assignEnd(NO_TIME, 0);
+            return;
+        }
+        assignEnd(endTime.toEpochSecond(ZoneOffset.UTC), endTime.getNano());
+    }
+
+    // Метод для установки начала, продолжительности и независимого окончания примитивами (итоги подзадач эпика);
+    // hasStart = false — времени начала и окончания нет
+    void assignTimes(boolean hasStart, long startSecond, int startNano, long durationSecond, int durationNano,
+                     long endSecond, int endNano) {
+        this.startSecond = hasStart ? startSecond : NO_TIME;
+        this.startNano = hasStart ? startNano : 0;
+        this.durationSecond = durationSecond;
+        this.durationNano = durationNano;
+        assignEnd(hasStart ? endSecond : NO_TIME, hasStart ? endNano : 0);
+    }
+
+    private void assignEnd(long second, int nano) {
+        endSecond = second;
+        endNano = nano;
+    }
+
+    private void assignStart(LocalDateTime startTime) {
+        startSecond = startTime == null ? NO_TIME : startTime.toEpochSecond(ZoneOffset.UTC);
+        startNano = startTime == null ? 0 : startTime.getNano();
+    }
+
+    private void assignDuration(Duration duration) {
+        durationSecond = duration == null ? NO_TIME : duration.getSeconds();
+        durationNano = duration == null ? 0 : duration.getNano();
     }
 
     @Override
@@ -115,15 +239,9 @@ public class Task {
         return Objects.hash(id);
     }
 
+    // Строка задачи в формате CSV файла менеджера
     @Override
     public String toString() {
-        return String.format("%d,%s,%s,%s,%s,%d,%s",
-            id,
-            type,
-            name,
-            status,
-            description,
-            duration != null ? duration.toMinutes() : 0,
-            startTime != null ? startTime : "");
+        return TaskCsvCodec.toCsv(this);
     }
 }
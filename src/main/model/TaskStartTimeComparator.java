@@ -5,15 +5,15 @@ import java.util.Comparator;
 public class TaskStartTimeComparator implements Comparator<Task> {
     @Override
     public int compare(Task task1, Task task2) {
-        if (task1.getStartTime() == null && task2.getStartTime() == null) {
+        if (!task1.hasStartTime() && !task2.hasStartTime()) {
             return 0;
         }
-        if (task1.getStartTime() == null) {
+        if (!task1.hasStartTime()) {
             return 1;
         }
-        if (task2.getStartTime() == null) {
+        if (!task2.hasStartTime()) {
             return -1;
         }
-        return task1.getStartTime().compareTo(task2.getStartTime());
+        return task1.compareStartTo(task2);
     }
 }
\ No newline at end of file
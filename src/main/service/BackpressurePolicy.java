@@ -0,0 +1,12 @@
+package main.service;
+
+// Поведение читателя ленты изменений, которого писатель обогнал на целый круг буфера.
+// Писатель никогда не ждёт читателей, поэтому политика определяет только то, что увидит отставший читатель
+public enum BackpressurePolicy {
+    // Перейти к самому старому событию, ещё лежащему в буфере; пропущенные события учитываются в getMissed()
+    DROP_OLDEST,
+    // Перейти сразу к новым событиям, отбросив всё отставание; пропущенные события учитываются в getMissed()
+    SKIP_TO_LATEST,
+    // Прекратить чтение с ChangeFeedOverrunException: читатель должен заново загрузить состояние и подписаться
+    FAIL
+}
@@ -0,0 +1,321 @@
+package main.service;
+
+import main.model.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Двоичный снимок состояния менеджера.
+// Формат: заголовок, записи фиксированной ширины, таблица строк (длина + UTF-8), раздел истории (ID задач)
+// и необязательное поколение журнала, свёрнутого в снимок (8 байт в конце файла)
+public final class BinarySnapshot {
+    // "TMBS" — Task Manager Binary Snapshot
+    public static final int MAGIC = 0x544D4253;
+    // Версия 2 добавила наносекунды продолжительности и признак наличия статуса
+    public static final short VERSION = 2;
+
+    // magic, version, reserved, recordCount, stringCount, historyCount, stringsOffset, historyOffset
+    private static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 4 + 4 + 8 + 8;
+    // id, type, status, flags, reserved, epicId, name, description, startSecond, startNano, durationSeconds,
+    // durationNano
+    private static final int RECORD_SIZE = 4 + 1 + 1 + 1 + 1 + 4 + 4 + 4 + 8 + 4 + 8 + 4;
+
+    private static final byte HAS_START = 1;
+    private static final byte HAS_DURATION = 2;
+    // Без этого признака байт статуса не читается: задача без статуса
+    private static final byte HAS_STATUS = 4;
+    private static final int NO_STRING = -1;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final List<Task> tasks;
+    private final int[] historyIds;
+    private final long journalGeneration;
+
+    private BinarySnapshot(List<Task> tasks, int[] historyIds, long journalGeneration) {
+        this.tasks = tasks;
+        this.historyIds = historyIds;
+        this.journalGeneration = journalGeneration;
+    }
+
+    // Задачи снимка в порядке записи
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    // ID задач истории просмотров в порядке просмотра
+    public int[] getHistoryIds() {
+        return historyIds;
+    }
+
+    // Последнее поколение журнала, вошедшее в снимок; 0 — снимок записан без журнала
+    public long getJournalGeneration() {
+        return journalGeneration;
+    }
+
+    // Метод проверки, что файл является двоичным снимком
+    public static boolean isBinary(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            return channel.read(magic) == 4 && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    // Метод для записи снимка через FileChannel
+    public static void write(Path target, Collection<? extends Task> tasks, List<Task> history) throws IOException {
+        write(target, tasks, history, 0);
+    }
+
+    public static void write(Path target, Collection<? extends Task> tasks, List<Task> history,
+                             long journalGeneration) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, tasks, history, journalGeneration);
+        }
+    }
+
+    public static void write(WritableByteChannel channel, Collection<? extends Task> tasks, List<Task> history)
+            throws IOException {
+        write(channel, tasks, history, 0);
+    }
+
+    // Метод для записи снимка в канал: в файловый канал разделы пишутся одной групповой записью
+    public static void write(WritableByteChannel channel, Collection<? extends Task> tasks, List<Task> history,
+                             long journalGeneration) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        ByteBuffer records = ByteBuffer.allocate(tasks.size() * RECORD_SIZE);
+        for (Task task : tasks) {
+            writeRecord(records, task, stringIds, strings);
+        }
+        records.flip();
+
+        int stringsSize = 0;
+        for (byte[] bytes : strings) {
+            stringsSize += 4 + bytes.length;
+        }
+        ByteBuffer stringTable = ByteBuffer.allocate(stringsSize);
+        for (byte[] bytes : strings) {
+            stringTable.putInt(bytes.length).put(bytes);
+        }
+        stringTable.flip();
+
+        ByteBuffer historySection = ByteBuffer.allocate(history.size() * 4 + (journalGeneration > 0 ? 8 : 0));
+        for (Task task : history) {
+            historySection.putInt(task.getId());
+        }
+        if (journalGeneration > 0) {
+            historySection.putLong(journalGeneration);
+        }
+        historySection.flip();
+
+        long stringsOffset = HEADER_SIZE + (long) records.remaining();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putInt(tasks.size())
+                .putInt(strings.size())
+                .putInt(history.size())
+                .putLong(stringsOffset)
+                .putLong(stringsOffset + stringsSize);
+        header.flip();
+
+        ByteBuffer[] sections = {header, records, stringTable, historySection};
+        if (channel instanceof GatheringByteChannel) {
+            // Пустой последний раздел (история) не показывает окончание записи, поэтому считаем байты
+            long remaining = 0;
+            for (ByteBuffer section : sections) {
+                remaining += section.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= ((GatheringByteChannel) channel).write(sections);
+            }
+            return;
+        }
+        for (ByteBuffer section : sections) {
+            while (section.hasRemaining()) {
+                channel.write(section);
+            }
+        }
+    }
+
+    // Метод для загрузки снимка через отображение файла в память.
+    // Счётчики и смещения заголовка проверяются по размеру файла: повреждённый снимок даёт IOException
+    public static BinarySnapshot read(Path source) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Файл не является двоичным снимком: " + source);
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия двоичного снимка " + version + ": " + source);
+        }
+        long limit = buffer.limit();
+        int recordCount = buffer.getInt(8);
+        int stringCount = buffer.getInt(12);
+        int historyCount = buffer.getInt(16);
+        long stringsOffset = buffer.getLong(20);
+        long historyOffset = buffer.getLong(28);
+        if (recordCount < 0 || stringCount < 0 || historyCount < 0
+                || stringsOffset != HEADER_SIZE + (long) recordCount * RECORD_SIZE
+                || historyOffset < stringsOffset || historyOffset + (long) historyCount * 4 > limit) {
+            throw corrupted(source, "заголовок не соответствует размеру файла");
+        }
+
+        String[] strings = new String[stringCount];
+        long position = stringsOffset;
+        for (int i = 0; i < stringCount; i++) {
+            int length = position + 4 <= historyOffset ? buffer.getInt((int) position) : -1;
+            if (length < 0 || position + 4 + length > historyOffset) {
+                throw corrupted(source, "строка " + i + " выходит за таблицу строк");
+            }
+            byte[] bytes = new byte[length];
+            buffer.get((int) position + 4, bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+
+        List<Task> tasks = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            tasks.add(readRecord(buffer, HEADER_SIZE + i * RECORD_SIZE, strings, source));
+        }
+
+        int[] historyIds = new int[historyCount];
+        for (int i = 0; i < historyCount; i++) {
+            historyIds[i] = buffer.getInt((int) historyOffset + i * 4);
+        }
+        long generationOffset = historyOffset + (long) historyCount * 4;
+        long trailer = limit - generationOffset;
+        if (trailer != 0 && trailer != 8) {
+            throw corrupted(source, "лишние данные после истории");
+        }
+        long journalGeneration = trailer == 8 ? buffer.getLong((int) generationOffset) : 0;
+        return new BinarySnapshot(tasks, historyIds, journalGeneration);
+    }
+
+    private static void writeRecord(ByteBuffer records, Task task, Map<String, Integer> stringIds,
+                                    List<byte[]> strings) {
+        boolean hasStart = task.hasStartTime();
+        boolean hasDuration = task.hasDuration();
+        byte flags = 0;
+        if (hasStart) {
+            flags |= HAS_START;
+        }
+        if (hasDuration) {
+            flags |= HAS_DURATION;
+        }
+        if (task.getStatus() != null) {
+            flags |= HAS_STATUS;
+        }
+        records.putInt(task.getId())
+                .put((byte) task.getType().ordinal())
+                .put(task.getStatus() != null ? (byte) task.getStatus().ordinal() : 0)
+                .put(flags)
+                .put((byte) 0)
+                .putInt(task instanceof Subtask ? ((Subtask) task).getEpicId() : 0)
+                .putInt(stringId(task.getName(), stringIds, strings))
+                .putInt(stringId(task.getDescription(), stringIds, strings))
+                .putLong(hasStart ? task.getStartEpochSecond() : 0)
+                .putInt(hasStart ? task.getStartNano() : 0)
+                .putLong(hasDuration ? task.getDurationSeconds() : 0)
+                .putInt(hasDuration ? task.getDurationNano() : 0);
+    }
+
+    private static Task readRecord(ByteBuffer buffer, int offset, String[] strings, Path source)
+            throws IOException {
+        int id = buffer.getInt(offset);
+        int typeOrdinal = buffer.get(offset + 4);
+        int statusOrdinal = buffer.get(offset + 5);
+        byte flags = buffer.get(offset + 6);
+        boolean hasStatus = (flags & HAS_STATUS) != 0;
+        if (typeOrdinal < 0 || typeOrdinal >= TYPES.length
+                || hasStatus && (statusOrdinal < 0 || statusOrdinal >= STATUSES.length)) {
+            throw corrupted(source, "неизвестный тип или статус задачи " + id);
+        }
+        TaskType type = TYPES[typeOrdinal];
+        TaskStatus status = hasStatus ? STATUSES[statusOrdinal] : null;
+        int epicId = buffer.getInt(offset + 8);
+        String name = string(strings, buffer.getInt(offset + 12), source);
+        String description = string(strings, buffer.getInt(offset + 16), source);
+        LocalDateTime startTime;
+        Duration duration;
+        try {
+            startTime = (flags & HAS_START) != 0
+                    ? LocalDateTime.ofEpochSecond(buffer.getLong(offset + 20), buffer.getInt(offset + 28),
+                    ZoneOffset.UTC)
+                    : null;
+            duration = (flags & HAS_DURATION) != 0
+                    ? Duration.ofSeconds(buffer.getLong(offset + 32), buffer.getInt(offset + 40))
+                    : null;
+        } catch (DateTimeException | ArithmeticException e) {
+            throw new IOException("Повреждён двоичный снимок " + source + ": время задачи " + id, e);
+        }
+
+        Task task;
+        switch (type) {
+            case EPIC:
+                task = new Epic(name, description);
+                break;
+            case SUBTASK:
+                task = new Subtask(name, description, epicId, duration, startTime);
+                break;
+            default:
+                task = new Task(name, description, duration, startTime);
+        }
+        task.setId(id);
+        task.setStatus(status);
+        return task;
+    }
+
+    private static int stringId(String value, Map<String, Integer> stringIds, List<byte[]> strings) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    private static String string(String[] strings, int id, Path source) throws IOException {
+        if (id == NO_STRING) {
+            return null;
+        }
+        if (id < 0 || id >= strings.length) {
+            throw corrupted(source, "нет строки " + id);
+        }
+        return strings[id];
+    }
+
+    private static IOException corrupted(Path source, String reason) {
+        return new IOException("Повреждён двоичный снимок " + source + ": " + reason);
+    }
+}
@@ -0,0 +1,187 @@
+package main.service;
+
+import main.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// История просмотров ограниченного размера: при переполнении вытесняется самый давний просмотр.
+// Записи хранятся в примитивных массивах фиксированной ёмкости: ID, задача и ссылки prev/next по индексу слота.
+// ID → слот ищется в хеш-таблице с открытой адресацией, поэтому добавление не создаёт объектов
+public class BoundedHistoryManager implements HistoryManager {
+    private static final int NONE = -1;
+
+    private final int capacity;
+    // Слоты списка
+    private final int[] ids;
+    private final Task[] tasks;
+    private final int[] prev;
+    private final int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    // Свободные слоты: сначала ещё не использованные, затем освобождённые (цепочка через next)
+    private int unused;
+    private int freeHead = NONE;
+    // Хеш-таблица ID → слот с линейным пробированием
+    private final int[] keys;
+    private final int[] slots;
+    private final int mask;
+
+    public BoundedHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.ids = new int[capacity];
+        this.tasks = new Task[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+        this.keys = new int[tableSize];
+        this.slots = new int[tableSize];
+        this.mask = tableSize - 1;
+        Arrays.fill(slots, NONE);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Метод для добавления в историю
+    @Override
+    public void add(Task task) {
+        int id = task.getId();
+        int slot = lookup(id);
+        if (slot != NONE) {
+            unlink(slot);
+        } else {
+            if (size == capacity) {
+                slot = head;
+                unlink(slot);
+                removeKey(ids[slot]);
+            } else {
+                slot = allocate();
+                size++;
+            }
+            ids[slot] = id;
+            insertKey(id, slot);
+        }
+        tasks[slot] = task;
+        linkLast(slot);
+    }
+
+    // Метод для получения истории
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(size);
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            history.add(tasks[slot]);
+        }
+        return history;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Удаление задачи из истории
+    @Override
+    public void remove(int id) {
+        int slot = removeKey(id);
+        if (slot == NONE) {
+            return;
+        }
+        unlink(slot);
+        tasks[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+        return unused++;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            head = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        } else {
+            tail = prev[slot];
+        }
+    }
+
+    private int bucket(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private int lookup(int id) {
+        for (int i = bucket(id); slots[i] != NONE; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return slots[i];
+            }
+        }
+        return NONE;
+    }
+
+    private void insertKey(int id, int slot) {
+        int i = bucket(id);
+        while (slots[i] != NONE) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        slots[i] = slot;
+    }
+
+    // Удаление ключа со сдвигом следующих записей цепочки назад, без «надгробий»
+    private int removeKey(int id) {
+        int i = bucket(id);
+        while (slots[i] != NONE && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        int removed = slots[i];
+        if (removed == NONE) {
+            return NONE;
+        }
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slots[j] == NONE) {
+                break;
+            }
+            int home = bucket(keys[j]);
+            boolean stays = i < j ? home > i && home <= j : home > i || home <= j;
+            if (!stays) {
+                keys[i] = keys[j];
+                slots[i] = slots[j];
+                i = j;
+            }
+        }
+        slots[i] = NONE;
+        return removed;
+    }
+}
@@ -0,0 +1,95 @@
+package main.service;
+
+import main.model.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Результат массовой операции по каждому элементу в порядке входа: задача (созданная, обновлённая или удалённая)
+// либо исключение, из-за которого элемент не применён. Ошибка одного элемента не отменяет остальные
+public class BulkResult {
+    private final Task[] tasks;
+    private final int[] ids;
+    private final RuntimeException[] errors;
+    private int failed;
+
+    BulkResult(int size) {
+        this.tasks = new Task[size];
+        this.ids = new int[size];
+        this.errors = new RuntimeException[size];
+    }
+
+    // Методы для заполнения результата менеджером
+    void succeed(int index, Task task) {
+        tasks[index] = task;
+        ids[index] = task.getId();
+    }
+
+    void fail(int index, int id, RuntimeException error) {
+        ids[index] = id;
+        errors[index] = error;
+        failed++;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isSucceeded(int index) {
+        return errors[index] == null;
+    }
+
+    // ID элемента: присвоенный при создании или переданный на вход
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    // Задача элемента или null, если он не применён
+    public Task getTask(int index) {
+        return tasks[index];
+    }
+
+    public RuntimeException getError(int index) {
+        return errors[index];
+    }
+
+    public int getSucceededCount() {
+        return ids.length - failed;
+    }
+
+    public int getFailedCount() {
+        return failed;
+    }
+
+    public boolean isAllSucceeded() {
+        return failed == 0;
+    }
+
+    // Применённые задачи в порядке входа
+    public List<Task> getSucceeded() {
+        List<Task> result = new ArrayList<>(getSucceededCount());
+        for (int i = 0; i < ids.length; i++) {
+            if (errors[i] == null) {
+                result.add(tasks[i]);
+            }
+        }
+        return result;
+    }
+
+    // Ошибки по позициям входа
+    public Map<Integer, RuntimeException> getFailures() {
+        if (failed == 0) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, RuntimeException> result = new LinkedHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (errors[i] != null) {
+                result.put(i, errors[i]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package main.service;
+
+import main.model.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// История просмотров для многопоточной работы без глобальной блокировки на запись.
+// Просмотр получает глобальный порядковый номер и кладётся в кольцевой буфер своей полосы (выбирается по потоку).
+// Буферы сливаются в упорядоченную структуру под блокировкой только при заполнении, при чтении истории
+// и при удалении. Порядок в истории определяется номером просмотра, а не порядком слива,
+// поэтому запоздавший просмотр встаёт на своё место
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int BUFFER_SIZE = 64;
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReadBuffer[] buffers;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    // Упорядоченная история: номер просмотра → задача, и последний номер просмотра каждой задачи
+    private final TreeMap<Long, Task> ordered = new TreeMap<>();
+    private final Map<Integer, Long> lastView = new HashMap<>();
+    // Размер упорядоченной истории после последнего слива; читается без блокировки
+    private volatile int drainedSize;
+
+    public ConcurrentHistoryManager() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) * 2;
+        buffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            buffers[i] = new ReadBuffer();
+        }
+    }
+
+    // Метод для добавления в историю
+    @Override
+    public void add(Task task) {
+        View view = new View(sequence.getAndIncrement(), task);
+        ReadBuffer buffer = buffers[stripeIndex()];
+        if (!buffer.offer(view)) {
+            drainLock.lock();
+            try {
+                drainBuffers();
+                apply(view);
+                drainedSize = ordered.size();
+            } finally {
+                drainLock.unlock();
+            }
+            return;
+        }
+        if (buffer.pending() >= DRAIN_THRESHOLD && drainLock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    // Метод для получения истории
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            return new ArrayList<>(ordered.values());
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Размер не ждёт блокировку: если слив уже идёт в другом потоке, возвращается размер после последнего слива
+    // (без просмотров, ещё лежащих в буферах полос)
+    @Override
+    public int size() {
+        if (!drainLock.tryLock()) {
+            return drainedSize;
+        }
+        try {
+            drainBuffers();
+            return ordered.size();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Удаление задачи из истории (предварительно применяются все опубликованные просмотры)
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            Long previous = lastView.remove(id);
+            if (previous != null) {
+                ordered.remove(previous);
+                drainedSize = ordered.size();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void drainBuffers() {
+        for (ReadBuffer buffer : buffers) {
+            buffer.drain(this);
+        }
+        drainedSize = ordered.size();
+    }
+
+    // Применение просмотра: более ранний просмотр задачи, чем уже учтённый, игнорируется
+    private void apply(View view) {
+        int id = view.task.getId();
+        Long previous = lastView.get(id);
+        if (previous != null) {
+            if (previous > view.sequence) {
+                return;
+            }
+            ordered.remove(previous);
+        }
+        lastView.put(id, view.sequence);
+        ordered.put(view.sequence, view.task);
+    }
+
+    private int stripeIndex() {
+        long threadId = Thread.currentThread().threadId();
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 40) & (buffers.length - 1);
+    }
+
+    private static final class View {
+        private final long sequence;
+        private final Task task;
+
+        View(long sequence, Task task) {
+            this.sequence = sequence;
+            this.task = task;
+        }
+    }
+
+    // Кольцевой буфер с несколькими писателями и одним читателем (читатель работает под drainLock)
+    private static final class ReadBuffer {
+        private final AtomicReferenceArray<View> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeIndex = new AtomicLong();
+        private volatile long readIndex;
+
+        boolean offer(View view) {
+            while (true) {
+                long tail = writeIndex.get();
+                if (tail - readIndex >= BUFFER_SIZE) {
+                    return false;
+                }
+                if (writeIndex.compareAndSet(tail, tail + 1)) {
+                    slots.lazySet((int) (tail & (BUFFER_SIZE - 1)), view);
+                    return true;
+                }
+            }
+        }
+
+        long pending() {
+            return writeIndex.get() - readIndex;
+        }
+
+        // Слив останавливается на слоте, который уже занят писателем, но ещё не заполнен
+        void drain(ConcurrentHistoryManager history) {
+            long head = readIndex;
+            long tail = writeIndex.get();
+            while (head < tail) {
+                int index = (int) (head & (BUFFER_SIZE - 1));
+                View view = slots.get(index);
+                if (view == null) {
+                    break;
+                }
+                slots.lazySet(index, null);
+                history.apply(view);
+                head++;
+            }
+            readIndex = head;
+        }
+    }
+}
@@ -0,0 +1,811 @@
+package main.service;
+
+import main.exception.TaskTimeIntersectionException;
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.model.TaskStatus;
+import main.model.TaskType;
+import main.util.Managers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Менеджер задач для многопоточной работы.
+// Изменения эпика и его подзадач выполняются под блокировкой полосы эпика, поэтому записи в разные эпики
+// не конкурируют между собой. Обычные задачи блокируют полосу своего ID. Индекс времени защищён отдельной
+// блокировкой, критическая секция проверки и вставки занимает O(log n). Чтение по ID и обходы выполняются без блокировок
+// и выдают хранимые объекты всех типов. Состав подзадач эпика меняется на месте под блокировкой полосы,
+// поэтому читать его следует через getSubtasksForEpic, а не из выданного эпика.
+// Поисковый индекс обновляется под блокировкой полосы изменяемой задачи и собственной блокировкой.
+// Просмотры записываются в историю через буферы ConcurrentHistoryManager
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int STRIPES = 64;
+
+    private final AtomicInteger taskIdCounter = new AtomicInteger(1);
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final Map<Integer, Subtask> subtasks = new ConcurrentHashMap<>();
+    private final HistoryManager history = Managers.getConcurrentHistory();
+    private final TaskTimeIndex prioritizedTasks = new TaskTimeIndex();
+    private final StampedLock prioritizedLock = new StampedLock();
+    private final TaskSearchIndex searchIndex = new TaskSearchIndex();
+    private final StampedLock searchLock = new StampedLock();
+    private final StatusIndex statusIndex = new StatusIndex();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private volatile Thread batchOwner;
+    // Запись для отката текущей пачки; читается и пишется только потоком batchOwner
+    private Undo undo;
+
+    public ConcurrentTaskManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Метод для создания обычной задачи
+    @Override
+    // ID выдаётся только после проверки времени, поэтому блокируется полоса очередного ID: до вставки задача
+    // не видна другим потокам, и блокировка нужна лишь для того, чтобы дождаться завершения пачки
+    public void createTask(Task task) {
+        ReentrantLock lock = stripe(taskIdCounter.get());
+        lock.lock();
+        try {
+            reserveNewTime(task);
+            rememberTask(task.getId());
+            tasks.put(task.getId(), task);
+            index(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Метод для создания эпика
+    @Override
+    public void createEpic(Epic epic) {
+        int id = taskIdCounter.getAndIncrement();
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            rememberEpic(id);
+            epic.setId(id);
+            epics.put(id, epic);
+            index(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Метод для создания подзадачи (добавляем только если есть эпик)
+    @Override
+    public void createSubtask(Subtask subtask) {
+        ReentrantLock lock = stripe(subtask.getEpicId());
+        lock.lock();
+        try {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                throw new IllegalArgumentException("Нельзя создать подзадачу без существующего эпика");
+            }
+            if (subtask.getEpicId() == subtask.getId()) {
+                return;
+            }
+            reserveNewTime(subtask);
+            rememberSubtask(subtask.getId());
+            rememberEpic(epic.getId());
+            subtasks.put(subtask.getId(), subtask);
+            index(subtask);
+            epic.addSubtask(subtask.getId());
+            epic.countSubtask(subtask);
+            rollup(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Метод для получения задачи по ID
+    @Override
+    public Task getTaskById(int id) {
+        return viewed(tasks.get(id));
+    }
+
+    // Метод для получения эпика по ID
+    @Override
+    public Epic getEpicById(int id) {
+        return viewed(epics.get(id));
+    }
+
+    // Метод для получения подзадачи по ID
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return viewed(subtasks.get(id));
+    }
+
+    // Обновление статуса задачи (задача, удалённая другим потоком, не восстанавливается)
+    @Override
+    public void updateTask(Task task) {
+        ReentrantLock lock = stripe(task.getId());
+        lock.lock();
+        try {
+            if (!tasks.containsKey(task.getId())) {
+                return;
+            }
+            rememberTask(task.getId());
+            reserveTime(task);
+            tasks.put(task.getId(), task);
+            index(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Обновление статуса подзадачи (подзадача, удалённая другим потоком, не восстанавливается)
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        ReentrantLock lock = stripe(subtask.getEpicId());
+        lock.lock();
+        try {
+            if (!subtasks.containsKey(subtask.getId())) {
+                return;
+            }
+            rememberSubtask(subtask.getId());
+            rememberEpic(subtask.getEpicId());
+            reserveTime(subtask);
+            subtasks.put(subtask.getId(), subtask);
+            index(subtask);
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null && epic.isSubtaskCounted(subtask.getId())) {
+                epic.countSubtask(subtask);
+                rollup(epic);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Метод обнавления статуса эпика: состав подзадач ведёт менеджер, поэтому он переносится из хранимого эпика,
+    // а показатели пересчитываются заново (новый объект эпика не знает учтённых показателей)
+    @Override
+    public void updateEpic(Epic epic) {
+        ReentrantLock lock = stripe(epic.getId());
+        lock.lock();
+        try {
+            rememberEpic(epic.getId());
+            Epic previous = epics.put(epic.getId(), epic);
+            index(epic);
+            if (previous != null && previous != epic) {
+                epic.removeAllSubtasks();
+                previous.forEachSubtaskId(epic::addSubtask);
+            }
+            recount(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Полный пересчёт статуса и времени эпика по его подзадачам
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        ReentrantLock lock = stripe(epic.getId());
+        lock.lock();
+        try {
+            rememberEpic(epic.getId());
+            recount(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Удаление задачи по ID
+    @Override
+    public void deleteTaskById(int id) {
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            rememberTask(id);
+            if (tasks.remove(id) != null) {
+                releaseTime(id);
+                unindex(id);
+            }
+            removeFromHistory(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Удаление эпика и его подзадач по ID
+    @Override
+    public void deleteEpicById(int id) {
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            rememberEpic(id);
+            Epic epic = epics.remove(id);
+            if (epic != null) {
+                unindex(id);
+                epic.forEachSubtaskId(subtaskId -> {
+                    rememberSubtask(subtaskId);
+                    subtasks.remove(subtaskId);
+                    releaseTime(subtaskId);
+                    unindex(subtaskId);
+                    removeFromHistory(subtaskId);
+                });
+            }
+            removeFromHistory(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Удаление подзадачи по ID и обновление статуса эпика
+    @Override
+    public void deleteSubtaskById(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask == null) {
+            removeFromHistory(id);
+            return;
+        }
+        ReentrantLock lock = stripe(subtask.getEpicId());
+        lock.lock();
+        try {
+            rememberSubtask(id);
+            rememberEpic(subtask.getEpicId());
+            if (subtasks.remove(id) != null) {
+                releaseTime(id);
+                unindex(id);
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic != null) {
+                    epic.removeSubtask(id);
+                    rollup(epic);
+                }
+            }
+            removeFromHistory(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Метод для получения списка всех задач
+    @Override
+    public List<Task> getAllTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    // Метод для получения всех эпиков
+    @Override
+    public List<Epic> getAllEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    // Метод получения всех подзадач
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    // Обход и представления по слабо согласованным коллекциям ConcurrentHashMap: без копирования и блокировок.
+    // Индекс времени не потокобезопасен, поэтому для него остаются реализации по умолчанию на копиях
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream();
+    }
+
+    @Override
+    public Collection<Task> getTasksView() {
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return Collections.unmodifiableCollection(epics.values());
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return Collections.unmodifiableCollection(subtasks.values());
+    }
+
+    // Метод для получения списка всех подзадач для эпика
+    @Override
+    public List<Subtask> getSubtasksForEpic(int epicId) {
+        ReentrantLock lock = stripe(epicId);
+        lock.lock();
+        try {
+            List<Subtask> result = new ArrayList<>();
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                epic.forEachSubtaskId(subtaskId -> {
+                    Subtask subtask = subtasks.get(subtaskId);
+                    if (subtask != null) {
+                        result.add(subtask);
+                    }
+                });
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Метод для удаления всех задач
+    @Override
+    public void deleteAllTasks() {
+        for (Integer id : tasks.keySet()) {
+            deleteTaskById(id);
+        }
+    }
+
+    // Метод для удаления всех эпиков и подзадач
+    @Override
+    public void deleteAllEpics() {
+        for (Integer id : epics.keySet()) {
+            deleteEpicById(id);
+        }
+    }
+
+    // Метод для удаления всех подзадач
+    @Override
+    public void deleteAllSubtasks() {
+        for (Integer id : subtasks.keySet()) {
+            deleteSubtaskById(id);
+        }
+    }
+
+    // Метод для получения истории просмотров задач
+    @Override
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+
+    @Override
+    public int getHistorySize() {
+        return history.size();
+    }
+
+    // Метод для получения списка задач в порядке приоритета
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        long stamp = prioritizedLock.readLock();
+        try {
+            return prioritizedTasks.getTasks();
+        } finally {
+            prioritizedLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        long stamp = prioritizedLock.readLock();
+        try {
+            return prioritizedTasks.getTasks(from, to);
+        } finally {
+            prioritizedLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                             int count) {
+        long stamp = prioritizedLock.readLock();
+        try {
+            return prioritizedTasks.findFreeSlots(duration, notBefore, notAfter, count);
+        } finally {
+            prioritizedLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Task> nextTasks(LocalDateTime after, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер выборки не может быть отрицательным: " + limit);
+        }
+        long stamp = prioritizedLock.readLock();
+        try {
+            return prioritizedTasks.getTasksAfter(after, limit);
+        } finally {
+            prioritizedLock.unlockRead(stamp);
+        }
+    }
+
+    // Выборки и подсчёт по статусу из индекса статусов: O(k log k) и O(1) вместо обхода всех задач
+    @Override
+    public List<Task> getByStatus(TaskStatus status) {
+        List<Task> result = new ArrayList<>();
+        result.addAll(statusIndex.select(TaskType.TASK, status, tasks));
+        result.addAll(statusIndex.select(TaskType.EPIC, status, epics));
+        result.addAll(statusIndex.select(TaskType.SUBTASK, status, subtasks));
+        return result;
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return statusIndex.select(TaskType.TASK, status, tasks);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return statusIndex.select(TaskType.EPIC, status, epics);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return statusIndex.select(TaskType.SUBTASK, status, subtasks);
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus() {
+        Map<TaskStatus, Integer> counts = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            counts.put(status, statusIndex.count(status));
+        }
+        return counts;
+    }
+
+    // Поиск по индексу, который поддерживается при изменениях: O(размер выдачи по словам запроса), а не обход всех задач
+    @Override
+    public List<Task> search(String query, int limit) {
+        int[] ids;
+        long stamp = searchLock.readLock();
+        try {
+            ids = searchIndex.search(query, limit);
+        } finally {
+            searchLock.unlockRead(stamp);
+        }
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = findTask(id);
+            // Задача могла быть удалена другим потоком после поиска
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    // Пачка изменений выполняется под всеми блокировками полос, поэтому другие записи ждут её завершения.
+    // Чтение по ID не блокируется и может увидеть промежуточное состояние.
+    // Для отката запоминаются только затронутые записи: хранимый объект и копия его полей при первом изменении
+    // или выдаче внутри пачки, как в InMemoryTaskManager. При ошибке восстанавливаются и замены объектов,
+    // и их изменения на месте, а показатели затронутых эпиков пересчитываются. Выданные внутри пачки ID не переиспользуются
+    @Override
+    public void batch(Consumer<TaskManager> operations) {
+        if (batchOwner == Thread.currentThread()) {
+            operations.accept(this);
+            return;
+        }
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+        try {
+            undo = new Undo();
+            batchOwner = Thread.currentThread();
+            try {
+                operations.accept(this);
+            } catch (RuntimeException | Error e) {
+                rollback(undo);
+                throw e;
+            }
+        } finally {
+            batchOwner = null;
+            undo = null;
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    // Откат затронутых записей: O(число изменённых в пачке записей), а не всего хранилища
+    private void rollback(Undo rolledBack) {
+        batchOwner = null;
+        rolledBack.states.forEach(InMemoryTaskManager::restoreState);
+        restore(tasks, rolledBack.tasks);
+        restore(epics, rolledBack.epics);
+        restore(subtasks, rolledBack.subtasks);
+
+        Set<Integer> touched = new LinkedHashSet<>(rolledBack.tasks.keySet());
+        touched.addAll(rolledBack.epics.keySet());
+        touched.addAll(rolledBack.subtasks.keySet());
+        rolledBack.states.keySet().forEach(task -> touched.add(task.getId()));
+        long stamp = prioritizedLock.writeLock();
+        try {
+            for (int id : touched) {
+                prioritizedTasks.remove(id);
+                Task task = findTask(id);
+                if (task != null && !(task instanceof Epic)) {
+                    prioritizedTasks.add(task);
+                }
+            }
+        } finally {
+            prioritizedLock.unlockWrite(stamp);
+        }
+        for (int id : touched) {
+            Task task = findTask(id);
+            if (task == null) {
+                unindex(id);
+            } else {
+                index(task);
+            }
+        }
+
+        // Состав подзадач восстанавливается из копии в прежнем порядке, счётчики статусов — полным пересчётом
+        rolledBack.states.forEach((task, state) -> {
+            if (task instanceof Epic) {
+                Epic epic = (Epic) task;
+                epic.removeAllSubtasks();
+                ((Epic) state).forEachSubtaskId(epic::addSubtask);
+            }
+        });
+        for (int id : rolledBack.epics.keySet()) {
+            Epic epic = epics.get(id);
+            if (epic != null) {
+                recount(epic);
+            }
+        }
+
+        if (rolledBack.history != null) {
+            for (Task task : history.getHistory()) {
+                history.remove(task.getId());
+            }
+            rolledBack.history.forEach(history::add);
+        }
+    }
+
+    private static <T extends Task> void restore(Map<Integer, T> store, Map<Integer, T> before) {
+        before.forEach((id, task) -> {
+            if (task == null) {
+                store.remove(id);
+            } else {
+                store.put(id, task);
+            }
+        });
+    }
+
+    // Метод для поиска задачи любого типа по ID без записи в историю и без блокировок
+    @Override
+    public Task findTask(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        return task != null ? task : epics.get(id);
+    }
+
+    // Методы для запоминания записи перед первым изменением внутри пачки (вне пачки ничего не делают)
+    private void rememberTask(int id) {
+        Undo current = currentUndo();
+        if (current != null && !current.tasks.containsKey(id)) {
+            current.tasks.put(id, rememberState(current, tasks.get(id)));
+        }
+    }
+
+    private void rememberEpic(int id) {
+        Undo current = currentUndo();
+        if (current != null && !current.epics.containsKey(id)) {
+            current.epics.put(id, rememberState(current, epics.get(id)));
+        }
+    }
+
+    private void rememberSubtask(int id) {
+        Undo current = currentUndo();
+        if (current != null && !current.subtasks.containsKey(id)) {
+            current.subtasks.put(id, rememberState(current, subtasks.get(id)));
+        }
+    }
+
+    // Копия полей объекта при первом изменении или выдаче; у эпика копия хранит и состав подзадач
+    private static <T extends Task> T rememberState(Undo current, T task) {
+        if (task != null && !current.states.containsKey(task)) {
+            current.states.put(task, task.copy());
+        }
+        return task;
+    }
+
+    private void rememberHistory() {
+        Undo current = currentUndo();
+        if (current != null && current.history == null) {
+            current.history = history.getHistory();
+        }
+    }
+
+    private Undo currentUndo() {
+        return batchOwner == Thread.currentThread() ? undo : null;
+    }
+
+    // Проверка пересечения, выдача ID новой задаче и занятие её времени одной атомарной операцией:
+    // отклонённая задача не расходует ID. До выдачи ID исключать из проверки нечего (ID начинаются с 1)
+    private void reserveNewTime(Task task) {
+        long stamp = prioritizedLock.writeLock();
+        try {
+            if (prioritizedTasks.hasIntersection(task, 0)) {
+                throw new TaskTimeIntersectionException(
+                        "Задача пересекается по времени с уже существующей задачей: " + task);
+            }
+            task.setId(taskIdCounter.getAndIncrement());
+            prioritizedTasks.add(task);
+        } finally {
+            prioritizedLock.unlockWrite(stamp);
+        }
+    }
+
+    // Проверка пересечения и занятие времени задачи одной атомарной операцией
+    private void reserveTime(Task task) {
+        long stamp = prioritizedLock.writeLock();
+        try {
+            if (prioritizedTasks.hasIntersection(task)) {
+                throw new TaskTimeIntersectionException(
+                        "Задача пересекается по времени с уже существующей задачей: " + task);
+            }
+            prioritizedTasks.add(task);
+        } finally {
+            prioritizedLock.unlockWrite(stamp);
+        }
+    }
+
+    private void releaseTime(int id) {
+        long stamp = prioritizedLock.writeLock();
+        try {
+            prioritizedTasks.remove(id);
+        } finally {
+            prioritizedLock.unlockWrite(stamp);
+        }
+    }
+
+    // Полный пересчёт статуса и времени эпика по его подзадачам; вызывается под блокировкой полосы эпика
+    private void recount(Epic epic) {
+        epic.resetSubtaskCounts();
+        epic.forEachSubtaskId(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                epic.countSubtask(subtask);
+            }
+        });
+        rollup(epic);
+    }
+
+    // Применение учтённых показателей к эпику с переучётом его статуса в индексе статусов
+    private void rollup(Epic epic) {
+        epic.applySubtaskRollup();
+        if (epics.get(epic.getId()) == epic) {
+            statusIndex.put(epic);
+        }
+    }
+
+    // Методы для обновления поискового индекса и индекса статусов; вызываются под блокировкой полосы задачи
+    private void index(Task task) {
+        statusIndex.put(task);
+        long stamp = searchLock.writeLock();
+        try {
+            searchIndex.add(task.getId(), task);
+        } finally {
+            searchLock.unlockWrite(stamp);
+        }
+    }
+
+    private void unindex(int id) {
+        statusIndex.remove(id);
+        long stamp = searchLock.writeLock();
+        try {
+            searchIndex.remove(id);
+        } finally {
+            searchLock.unlockWrite(stamp);
+        }
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task != null) {
+            Undo current = currentUndo();
+            if (current != null) {
+                rememberState(current, task);
+                rememberHistory();
+            }
+            history.add(task);
+        }
+        return task;
+    }
+
+    private void removeFromHistory(int id) {
+        rememberHistory();
+        history.remove(id);
+    }
+
+    private ReentrantLock stripe(int id) {
+        return stripes[Math.floorMod(id, STRIPES)];
+    }
+
+    // Индекс статусов: множества ID по типу и статусу и учтённый статус каждой записи.
+    // Статус записи переучитывается под блокировкой её полосы, поэтому изменения одной записи не конкурируют
+    private static final class StatusIndex {
+        private final Map<Integer, TaskStatus> statuses = new ConcurrentHashMap<>();
+        private final Map<TaskType, Map<TaskStatus, Set<Integer>>> ids = new EnumMap<>(TaskType.class);
+
+        StatusIndex() {
+            for (TaskType type : TaskType.values()) {
+                Map<TaskStatus, Set<Integer>> byStatus = new EnumMap<>(TaskStatus.class);
+                for (TaskStatus status : TaskStatus.values()) {
+                    byStatus.put(status, ConcurrentHashMap.newKeySet());
+                }
+                ids.put(type, byStatus);
+            }
+        }
+
+        void put(Task task) {
+            int id = task.getId();
+            TaskStatus status = task.getStatus();
+            TaskStatus previous = status == null ? statuses.remove(id) : statuses.put(id, status);
+            if (previous == status) {
+                return;
+            }
+            if (previous != null) {
+                ids.get(task.getType()).get(previous).remove(id);
+            }
+            if (status != null) {
+                ids.get(task.getType()).get(status).add(id);
+            }
+        }
+
+        void remove(int id) {
+            TaskStatus previous = statuses.remove(id);
+            if (previous != null) {
+                for (Map<TaskStatus, Set<Integer>> byStatus : ids.values()) {
+                    byStatus.get(previous).remove(id);
+                }
+            }
+        }
+
+        // Задачи в порядке ID; запись, изменённая другим потоком после чтения индекса, пропускается
+        <T extends Task> List<T> select(TaskType type, TaskStatus status, Map<Integer, T> store) {
+            int[] selected = ids.get(type).get(status).stream().mapToInt(Integer::intValue).sorted().toArray();
+            List<T> result = new ArrayList<>(selected.length);
+            for (int id : selected) {
+                T task = store.get(id);
+                if (task != null && task.getStatus() == status) {
+                    result.add(task);
+                }
+            }
+            return result;
+        }
+
+        int count(TaskStatus status) {
+            int count = 0;
+            for (Map<TaskStatus, Set<Integer>> byStatus : ids.values()) {
+                count += byStatus.get(status).size();
+            }
+            return count;
+        }
+    }
+
+    // Исходные значения записей, затронутых пачкой
+    private static final class Undo {
+        private final Map<Integer, Task> tasks = new HashMap<>();
+        private final Map<Integer, Epic> epics = new HashMap<>();
+        private final Map<Integer, Subtask> subtasks = new HashMap<>();
+        // Копии полей объектов, выданных или изменённых внутри пачки, по самому объекту
+        private final Map<Task, Task> states = new IdentityHashMap<>();
+        private List<Task> history;
+    }
+}
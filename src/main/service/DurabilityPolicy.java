@@ -0,0 +1,11 @@
+package main.service;
+
+public enum DurabilityPolicy {
+    // Изменение возвращается только после записи снимка с ним на диск; изменения других потоков,
+    // пришедшие во время записи, сворачиваются в одну следующую запись
+    EVERY_WRITE,
+    // Снимок пишется не чаще одного раза за заданный интервал
+    INTERVAL,
+    // Снимок пишется только по flush() и при закрытии менеджера
+    ON_SHUTDOWN
+}
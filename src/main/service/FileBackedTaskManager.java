@@ -1,258 +1,751 @@
 package main.service;
 
 import main.model.*;
+import main.util.CsvReader;
+import main.util.CsvWriter;
+import main.util.TaskCsvCodec;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements Closeable {
+    // Размер журнала в байтах, после которого он сворачивается в новый снимок
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private static final String HEADER = "id,type,name,status,description,duration,startTime,epic";
+
+    // Типы записей журнала
+    private static final String PUT = "P";
+    private static final String DELETE = "D";
+    private static final String DELETE_ALL = "X";
+    private static final String HISTORY = "H";
+    private static final String HISTORY_SECTION = "History";
+    // Запись снимка с поколением журнала, свёрнутым в этот снимок
+    private static final String JOURNAL_SECTION = "Journal";
+    private static final TaskType[] TASK_TYPES = TaskType.values();
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
     private final File file;
+    private final SnapshotFormat format;
+    private final TaskJournal journal;
+    private long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private ExecutorService compactor;
+    private Future<?> compaction;
+    private volatile Throwable compactionFailure;
+    private List<String> pendingRecords;
+    private boolean pendingSave;
+    private final PersistenceStats persistenceStats = new PersistenceStats();
+    // Последнее поколение журнала, вошедшее в снимок; более старые файлы журнала при загрузке пропускаются
+    private long foldedGeneration;
+    // История просмотров изменилась после последней записи H в журнал
+    private boolean historyChanged;
+    // Переиспользуемый буфер для записей журнала
+    private final StringBuilder recordBuffer = new StringBuilder(128);
+    private final CsvWriter recordWriter = new CsvWriter(recordBuffer);
 
     public FileBackedTaskManager(File file) {
+        this(file, PersistenceMode.SNAPSHOT);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode) {
+        this(file, mode, SnapshotFormat.CSV);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode, SnapshotFormat format) {
+        this(file, mode, format, true);
+    }
+
+    // Конструктор для наследников: fresh = false — менеджер будет заполнен из существующих файлов (loadFromFiles)
+    protected FileBackedTaskManager(File file, PersistenceMode mode, SnapshotFormat format, boolean fresh) {
         this.file = file;
+        this.format = format;
+        if (mode == PersistenceMode.JOURNAL) {
+            journal = new TaskJournal(journalPath(file));
+            if (fresh) {
+                journal.reset(1);
+                // Новый менеджер пуст: начальный снимок пишется без обращения к переопределяемым методам
+                saveSnapshot(new SnapshotState(List.of(), List.of(), 0));
+            }
+        } else {
+            journal = null;
+        }
+    }
+
+    // Метод для изменения порога свёртки журнала
+    public void setCompactionThreshold(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    // Метод для получения статистики записи и загрузки файла
+    public PersistenceStats getPersistenceStats() {
+        return persistenceStats;
     }
 
     // Метод для сохранения данных в файл
-    private void save() {
-        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
-            writer.write("id,type,name,status,description,epic,startTime,duration");
-            writer.newLine();
-            List<Task> allTasks = new ArrayList<>();
-            allTasks.addAll(getAllTasks());
-            allTasks.addAll(getAllEpics());
-            allTasks.addAll(getAllSubtasks());
-            for (Task task : allTasks) {
-                writer.write(task.toString());
-                writer.newLine();
-            }
-            writer.newLine();
-            writer.write("History");
-            writer.newLine();
-            for (Task task : history.getHistory()) {
-                writer.write(String.valueOf(task.getId()));
-                writer.write(",");
+    protected void save() {
+        saveSnapshot(currentState());
+    }
+
+    private void saveSnapshot(SnapshotState state) {
+        long start = System.nanoTime();
+        writeSnapshot(file.toPath(), format, state);
+        persistenceStats.recordSave(file.length(), System.nanoTime() - start);
+    }
+
+    // Метод для записи полного снимка в указанный файл
+    private void writeSnapshot(Path target) {
+        writeSnapshot(target, format);
+    }
+
+    private void writeSnapshot(Path target, SnapshotFormat targetFormat) {
+        writeSnapshot(target, targetFormat, currentState());
+    }
+
+    private void writeSnapshot(Path target, SnapshotFormat targetFormat, SnapshotState state) {
+        if (targetFormat == SnapshotFormat.BINARY) {
+            try {
+                BinarySnapshot.write(target, state.tasks, state.history, state.journalGeneration);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка сохранения данных в файл: " + target, e);
             }
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(target)) {
+            writeSnapshot(out, targetFormat, state);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения данных в файл: " + target, e);
+        }
+    }
+
+    // Метод для фиксации состояния под блокировкой: копируются только поля задач (эпики без списков подзадач),
+    // а дорогое кодирование снимка можно выполнить позже, уже без блокировки
+    protected SnapshotState captureSnapshot() {
+        List<Task> tasks = allTasks();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            tasks.set(i, task instanceof Epic ? ((Epic) task).copyWithoutSubtasks() : task.copy());
+        }
+        return new SnapshotState(tasks, history.getHistory(), foldedGeneration);
+    }
+
+    // Метод для кодирования зафиксированного состояния в снимок (в формате менеджера)
+    protected byte[] encodeSnapshot(SnapshotState state) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeSnapshot(out, format, state);
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка сохранения данных в файл: " + file.getPath(), e);
         }
+        return out.toByteArray();
+    }
+
+    // Метод для записи готового снимка: через временный файл со сбросом на диск и атомарной заменой
+    protected void writeSnapshotDurably(byte[] snapshot) {
+        Path target = file.toPath();
+        Path temp = tempPath(target);
+        try {
+            Files.write(temp, snapshot);
+            replaceDurably(temp, target);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения данных в файл: " + target, e);
+        }
+    }
+
+    private SnapshotState currentState() {
+        return new SnapshotState(allTasks(), history.getHistory(), foldedGeneration);
+    }
+
+    private void writeSnapshot(OutputStream out, SnapshotFormat targetFormat, SnapshotState state)
+            throws IOException {
+        if (targetFormat == SnapshotFormat.BINARY) {
+            BinarySnapshot.write(Channels.newChannel(out), state.tasks, state.history, state.journalGeneration);
+            return;
+        }
+        CsvWriter writer = new CsvWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.beginField().append(HEADER);
+        writer.endRecord();
+        for (Task task : state.tasks) {
+            TaskCsvCodec.write(writer, task);
+            writer.endRecord();
+        }
+        writer.endRecord();
+        writer.field(HISTORY_SECTION);
+        writer.endRecord();
+        StringBuilder ids = writer.beginField();
+        for (Task task : state.history) {
+            ids.append(task.getId()).append(',');
+        }
+        if (state.journalGeneration > 0) {
+            writer.endRecord();
+            writer.field(JOURNAL_SECTION).field(state.journalGeneration);
+        }
+        writer.flush();
+    }
+
+    private List<Task> allTasks() {
+        List<Task> allTasks = new ArrayList<>();
+        allTasks.addAll(getAllTasks());
+        allTasks.addAll(getAllEpics());
+        allTasks.addAll(getAllSubtasks());
+        return allTasks;
+    }
+
+    // Метод для фиксации изменения: полная перезапись файла или одна запись в журнал.
+    // Внутри пачки изменения копятся и записываются один раз при её завершении
+    private void persist(Supplier<String> record) {
+        if (pendingRecords != null) {
+            if (journal != null) {
+                pendingRecords.add(record.get());
+            } else {
+                pendingSave = true;
+            }
+            return;
+        }
+        if (journal == null) {
+            save();
+            return;
+        }
+        appendToJournal(record.get());
+    }
+
+    // Метод для фиксации созданной или обновлённой задачи (если менеджер действительно её сохранил)
+    private void persistPut(Task task) {
+        if (findTask(task.getId()) == task) {
+            persist(() -> {
+                recordWriter.clear();
+                recordWriter.field(PUT);
+                TaskCsvCodec.write(recordWriter, task);
+                return recordBuffer.toString();
+            });
+        }
+    }
+
+    // Метод для фиксации удаления одной задачи или всех задач типа (id < 0)
+    private void persistDelete(TaskType type, int id) {
+        persist(() -> {
+            recordWriter.clear();
+            if (id < 0) {
+                recordWriter.field(DELETE_ALL).field(type);
+            } else {
+                recordWriter.field(DELETE).field(type).field(id);
+            }
+            return recordBuffer.toString();
+        });
+    }
+
+    // Метод для записи в журнал со свёрткой при превышении порога
+    private void appendToJournal(String record) {
+        checkCompactionFailure();
+        long start = System.nanoTime();
+        long sizeBefore = journal.size();
+        journal.append(historyChanged ? record + "\n" + historyRecord() : record);
+        historyChanged = false;
+        persistenceStats.recordSave(journal.size() - sizeBefore, System.nanoTime() - start);
+        if (journal.size() >= compactionThreshold && (compaction == null || compaction.isDone())) {
+            journal.append(historyRecord());
+            journal.seal();
+            startCompaction();
+        }
+    }
+
+    // Пачка изменений: одна перезапись файла или одна дозапись в журнал
+    @Override
+    public void batch(Consumer<TaskManager> operations) {
+        if (isInBatch()) {
+            super.batch(operations);
+            return;
+        }
+        pendingRecords = new ArrayList<>();
+        pendingSave = false;
+        List<String> records;
+        try {
+            super.batch(operations);
+        } finally {
+            records = pendingRecords;
+            pendingRecords = null;
+        }
+        if (pendingSave) {
+            save();
+        } else if (!records.isEmpty()) {
+            appendToJournal(String.join("\n", records));
+        }
+    }
+
+    // Метод для запуска фоновой свёртки запечатанного журнала
+    private void startCompaction() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compaction = compactor.submit(this::foldSealedJournal);
+    }
+
+    // Свёртка выполняется по файлам (снимок + запечатанный журнал) и не трогает состояние менеджера
+    private void foldSealedJournal() {
+        try {
+            Path target = file.toPath();
+            Path temp = tempPath(target);
+            FileBackedTaskManager folded = new FileBackedTaskManager(temp.toFile(), PersistenceMode.SNAPSHOT, format);
+            folded.readSnapshot(target);
+            long sealedGeneration = TaskJournal.read(journal.getSealedPath(), folded.foldedGeneration,
+                    folded::applyRecord);
+            folded.foldedGeneration = Math.max(folded.foldedGeneration, sealedGeneration);
+            folded.refreshEpicStatuses();
+            folded.writeSnapshot(temp);
+            replaceDurably(temp, target);
+            journal.deleteSealed();
+        } catch (RuntimeException | IOException e) {
+            compactionFailure = e;
+        }
+    }
+
+    // Метод для синхронной свёртки журнала в снимок текущего состояния
+    public void compact() {
+        if (journal == null) {
+            save();
+            return;
+        }
+        awaitCompaction();
+        Path target = file.toPath();
+        Path temp = tempPath(target);
+        foldedGeneration = journal.getGeneration();
+        writeSnapshot(temp);
+        try {
+            replaceDurably(temp, target);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения данных в файл: " + target, e);
+        }
+        historyChanged = false;
+        journal.reset(foldedGeneration + 1);
+    }
+
+    // Метод для ожидания завершения фоновой свёртки
+    private void awaitCompaction() {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание свёртки журнала прервано: " + file.getPath(), e);
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Ошибка свёртки журнала: " + file.getPath(), e.getCause());
+        }
+        checkCompactionFailure();
+    }
+
+    private void checkCompactionFailure() {
+        Throwable failure = compactionFailure;
+        if (failure != null) {
+            compactionFailure = null;
+            throw new ManagerSaveException("Ошибка свёртки журнала: " + file.getPath(), failure);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (historyChanged) {
+                journal.append(historyRecord());
+                historyChanged = false;
+            }
+            awaitCompaction();
+        } finally {
+            if (compactor != null) {
+                compactor.shutdown();
+            }
+            journal.close();
+        }
     }
 
     // Метод для загрузки данных из файла
     public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, PersistenceMode.SNAPSHOT);
+    }
+
+    // Метод для загрузки данных из файла: снимок, поверх него записи журнала.
+    // Формат снимка определяется по содержимому файла и сохраняется для последующих записей
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode) {
         if (file == null) {
             throw new IllegalArgumentException("Файл не может быть null");
         }
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
-        if (!file.exists()) {
-            return manager;
+        return loadFromFile(file, mode, detectFormat(file.toPath()));
+    }
+
+    // Метод для загрузки данных из файла с записью последующих снимков в указанном формате
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode, SnapshotFormat format) {
+        if (file == null) {
+            throw new IllegalArgumentException("Файл не может быть null");
         }
-        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
-            String header = reader.readLine();
-            if (header == null || header.isEmpty()) {
-                return manager;
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, mode, format, false);
+        manager.restoreFromFiles();
+        return manager;
+    }
+
+    // Метод для заполнения менеджера, созданного с fresh = false, из снимка и журнала
+    protected void restoreFromFiles() {
+        long start = System.nanoTime();
+        readSnapshot(file.toPath());
+        TaskJournal existing = journal != null ? journal : new TaskJournal(journalPath(file));
+        if (!existing.exists()) {
+            persistenceStats.recordLoad(file.length(), System.nanoTime() - start);
+            if (journal != null) {
+                journal.open(foldedGeneration + 1);
             }
-            List<Task> tasks = manager.readTasks(reader);
-            manager.createTasks(tasks);
-            manager.readHistory(reader);
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка загрузки данных из файла: " + file.getPath(), e);
+            return;
+        }
+        long journalBytes = existing.sizeOnDisk();
+        long appliedGeneration = existing.forEachRecord(foldedGeneration, this::applyRecord);
+        refreshEpicStatuses();
+        persistenceStats.recordLoad(file.length() + journalBytes, System.nanoTime() - start);
+        if (journal == null) {
+            // Журнал, оставшийся от режима JOURNAL, переносим в снимок и удаляем
+            foldedGeneration = appliedGeneration;
+            save();
+            existing.delete();
+            return;
+        }
+        journal.open(appliedGeneration + 1);
+        if (journal.hasSealed()) {
+            startCompaction();
         }
-        return manager;
     }
 
-    // Метод для чтения задач из файла
-    private List<Task> readTasks(BufferedReader reader) throws IOException {
-        List<Task> tasks = new ArrayList<>();
-        String line;
-        while ((line = reader.readLine()) != null && !line.isBlank()) {
-            tasks.add(fromString(line));
+    // Метод для конвертации снимка между форматами CSV и двоичным
+    public static void convert(File source, File target, SnapshotFormat targetFormat) {
+        FileBackedTaskManager manager = loadFromFile(source);
+        manager.writeSnapshot(target.toPath(), targetFormat);
+    }
+
+    // Метод для определения формата существующего снимка
+    protected static SnapshotFormat detectFormat(Path snapshot) {
+        try {
+            return BinarySnapshot.isBinary(snapshot) ? SnapshotFormat.BINARY : SnapshotFormat.CSV;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки данных из файла: " + snapshot, e);
         }
-        return tasks;
     }
 
-    // Метод для создания задач
-    private void createTasks(List<Task> tasks) {
-        for (Task task : tasks) {
-            if (task instanceof Epic) {
-                createEpic((Epic) task);
-            } else if (!(task instanceof Subtask)) {
-                createTask(task);
+    // Метод для чтения снимка
+    private void readSnapshot(Path snapshot) {
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        if (detectFormat(snapshot) == SnapshotFormat.BINARY) {
+            readBinarySnapshot(snapshot);
+            return;
+        }
+        try (CsvReader reader = new CsvReader(new InputStreamReader(Files.newInputStream(snapshot),
+                StandardCharsets.UTF_8))) {
+            if (!reader.nextRecord() || reader.isBlankRecord()) {
+                return;
+            }
+            List<Task> tasks = new ArrayList<>();
+            while (reader.nextRecord() && !reader.isBlankRecord()) {
+                tasks.add(TaskCsvCodec.read(reader));
             }
+            restoreTasks(tasks);
+            readHistory(reader);
+            readFoldedGeneration(reader);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки данных из файла: " + snapshot, e);
+        }
+    }
+
+    // Метод для чтения двоичного снимка
+    private void readBinarySnapshot(Path snapshot) {
+        BinarySnapshot binary;
+        try {
+            binary = BinarySnapshot.read(snapshot);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки данных из файла: " + snapshot, e);
         }
-        for (Task task : tasks) {
-            if (task instanceof Subtask) {
-                createSubtask((Subtask) task);
+        restoreTasks(binary.getTasks());
+        foldedGeneration = binary.getJournalGeneration();
+        for (int id : binary.getHistoryIds()) {
+            Task task = findTask(id);
+            if (task != null) {
+                history.add(task);
             }
         }
     }
 
-    // Метод для чтения истории
-    private void readHistory(BufferedReader reader) throws IOException {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.equals("History")) {
-                String historyLine = reader.readLine();
-                if (historyLine != null && !historyLine.isEmpty()) {
-                    String[] taskIds = historyLine.split(",");
-                    for (String taskId : taskIds) {
-                        int id = Integer.parseInt(taskId);
-                        Task task = getTaskById(id);
-                        if (task == null) {
-                            task = getEpicById(id);
-                            if (task == null) {
-                                task = getSubtaskById(id);
-                            }
-                        }
-                        if (task != null) {
-                            history.add(task);
-                        }
-                    }
+    // Метод для чтения истории: строка с ID через запятую после заголовка раздела
+    private void readHistory(CsvReader reader) throws IOException {
+        while (reader.nextRecord()) {
+            if (reader.nextField() && reader.fieldEquals(HISTORY_SECTION)) {
+                if (reader.nextRecord()) {
+                    addToHistory(reader);
                 }
-                break;
+                return;
+            }
+        }
+    }
+
+    // Метод для чтения поколения журнала, свёрнутого в снимок (в снимках без журнала записи нет)
+    private void readFoldedGeneration(CsvReader reader) throws IOException {
+        while (reader.nextRecord()) {
+            if (reader.nextField() && reader.fieldEquals(JOURNAL_SECTION)) {
+                reader.requireField("generation");
+                foldedGeneration = reader.fieldAsLong();
+                return;
+            }
+        }
+    }
+
+    // Метод для добавления в историю задач из оставшихся полей записи
+    private void addToHistory(CsvReader reader) throws IOException {
+        while (reader.nextField()) {
+            if (reader.isFieldEmpty()) {
+                continue;
+            }
+            Task task = findTask(reader.fieldAsInt());
+            if (task != null) {
+                history.add(task);
             }
         }
     }
 
-    // Метод для преобразования из строки в задачу
-    private static Task fromString(String value) {
-        // Используем split с лимитом -1, чтобы сохранить пустые поля
-        String[] fields = value.split(",", -1);
-        if (fields.length == 7) {
-            // Если строка содержит 7 полей, добавляем недостающее поле (duration) со значением "null"
-            String[] temp = new String[8];
-            System.arraycopy(fields, 0, temp, 0, 7);
-            temp[7] = "null";
-            fields = temp;
-        } else if (fields.length != 8) {
-            throw new IllegalArgumentException("Некорректная строка CSV: " + value);
-        }
-
-        int id = Integer.parseInt(fields[0]);
-        TaskType type = TaskType.valueOf(fields[1]);
-        String name = fields[2];
-        TaskStatus status = TaskStatus.valueOf(fields[3]);
-        String description = fields[4];
-        String epicId = fields[5];
-        // Если поле пустое или равно "null", присваиваем null
-        LocalDateTime startTime = ("null".equals(fields[6]) || fields[6].isEmpty())
-                ? null
-                : LocalDateTime.parse(fields[6]);
-        Duration duration = ("null".equals(fields[7]) || fields[7].isEmpty())
-                ? null
-                : Duration.parse(fields[7]);
-
-        Task task;
+    // Метод для применения одной записи журнала
+    private void applyRecord(CsvReader record) throws IOException {
+        record.requireField("type");
+        if (record.fieldEquals(PUT)) {
+            restoreTask(TaskCsvCodec.read(record));
+        } else if (record.fieldEquals(DELETE)) {
+            record.requireField("taskType");
+            TaskType taskType = record.fieldAsEnum(TASK_TYPES);
+            record.requireField("id");
+            applyDelete(taskType, record.fieldAsInt());
+        } else if (record.fieldEquals(DELETE_ALL)) {
+            record.requireField("taskType");
+            applyDeleteAll(record.fieldAsEnum(TASK_TYPES));
+        } else if (record.fieldEquals(HISTORY)) {
+            for (Task task : history.getHistory()) {
+                history.remove(task.getId());
+            }
+            addToHistory(record);
+        } else {
+            throw new ManagerSaveException("Некорректная запись журнала " + record.getRecordNumber() + ": "
+                    + record.field());
+        }
+    }
+
+    private void applyDelete(TaskType type, int id) {
         switch (type) {
             case TASK:
-                task = new Task(name, description, duration, startTime);
+                super.deleteTaskById(id);
                 break;
             case EPIC:
-                task = new Epic(name, description);
+                super.deleteEpicById(id);
+                break;
+            default:
+                super.deleteSubtaskById(id);
+        }
+    }
+
+    private void applyDeleteAll(TaskType type) {
+        switch (type) {
+            case TASK:
+                super.deleteAllTasks();
                 break;
-            case SUBTASK:
-                task = new Subtask(name, description, Integer.parseInt(epicId), duration, startTime);
+            case EPIC:
+                super.deleteAllEpics();
                 break;
             default:
-                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+                super.deleteAllSubtasks();
         }
+    }
 
-        task.setId(id);
-        task.setStatus(status);
-        return task;
+    // Статусы эпиков в журнал не пишутся, поэтому после воспроизведения пересчитываем их
+    private void refreshEpicStatuses() {
+        for (Epic epic : getAllEpics()) {
+            updateEpicStatus(epic);
+        }
+    }
+
+    private String historyRecord() {
+        StringBuilder record = new StringBuilder(HISTORY);
+        for (Task task : history.getHistory()) {
+            record.append(',').append(task.getId());
+        }
+        return record.toString();
+    }
+
+    private static Path journalPath(File file) {
+        return file.toPath().resolveSibling(file.getName() + ".journal");
+    }
+
+    private static Path tempPath(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    // Метод для атомарной замены снимка после сброса данных на диск
+    private static void replaceDurably(Path source, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Просмотры пишутся в журнал записью H вместе со следующим изменением или при закрытии
+    @Override
+    public Task getTaskById(int id) {
+        return viewed(super.getTaskById(id));
     }
 
+    @Override
+    public Epic getEpicById(int id) {
+        return viewed(super.getEpicById(id));
+    }
 
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return viewed(super.getSubtaskById(id));
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task != null) {
+            historyChanged = true;
+        }
+        return task;
+    }
 
     // Метод для создания задачи
     @Override
     public void createTask(Task task) {
         super.createTask(task);
-        save();
+        persistPut(task);
     }
 
     // Метод для создания эпика
     @Override
     public void createEpic(Epic epic) {
         super.createEpic(epic);
-        save();
+        persistPut(epic);
     }
 
     // Метод для создания подзадачи
     @Override
     public void createSubtask(Subtask subtask) {
         super.createSubtask(subtask);
-        save();
+        persistPut(subtask);
     }
 
     // Метод для удаления задачи
     @Override
     public void deleteTaskById(int id) {
         super.deleteTaskById(id);
-        save();
+        persistDelete(TaskType.TASK, id);
     }
 
     // Метод для удаления эпика
     @Override
     public void deleteEpicById(int id) {
         super.deleteEpicById(id);
-        save();
+        persistDelete(TaskType.EPIC, id);
     }
 
     // Метод для удаления подзадачи
     @Override
     public void deleteSubtaskById(int id) {
         super.deleteSubtaskById(id);
-        save();
+        persistDelete(TaskType.SUBTASK, id);
     }
 
     // Метод для удаления всех задач
     @Override
     public void deleteAllTasks() {
         super.deleteAllTasks();
-        save();
+        persistDelete(TaskType.TASK, -1);
     }
 
     // Метод для удаления всех эпиков
     @Override
     public void deleteAllEpics() {
         super.deleteAllEpics();
-        save();
+        persistDelete(TaskType.EPIC, -1);
     }
 
     // Метод для удаления всех подзадач
     @Override
     public void deleteAllSubtasks() {
         super.deleteAllSubtasks();
-        save();
+        persistDelete(TaskType.SUBTASK, -1);
     }
 
     // Метод для обновления задачи
     @Override
     public void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        persistPut(task);
     }
 
     // Метод для обновления эпика
     @Override
     public void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        persistPut(epic);
     }
 
     // Метод для обновления подзадачи
     @Override
     public void updateSubtask(Subtask subtask) {
         super.updateSubtask(subtask);
-        save();
+        persistPut(subtask);
+    }
+
+    // Массовые операции фиксируются одной пачкой: одна перезапись файла или одна дозапись в журнал.
+    // Массовое удаление не переопределяется — одиночные удаления фиксируются внутри его пачки
+    @Override
+    public BulkResult createTasks(Collection<? extends Task> tasks) {
+        return persistBulk(() -> super.createTasks(tasks));
+    }
+
+    @Override
+    public BulkResult createSubtasks(Collection<? extends Subtask> subtasks) {
+        return persistBulk(() -> super.createSubtasks(subtasks));
+    }
+
+    @Override
+    public BulkResult updateSubtasks(Collection<? extends Subtask> subtasks) {
+        return persistBulk(() -> super.updateSubtasks(subtasks));
+    }
+
+    // Метод для фиксации применённых элементов массовой операции
+    private BulkResult persistBulk(Supplier<BulkResult> operation) {
+        BulkResult[] result = new BulkResult[1];
+        batch(manager -> {
+            result[0] = operation.get();
+            result[0].getSucceeded().forEach(this::persistPut);
+        });
+        return result[0];
     }
 
     // Метод для получения истории
@@ -260,4 +753,16 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
     public List<Task> getHistory() {
         return super.getHistory();
     }
-}
\ No newline at end of file
+    // Зафиксированное состояние менеджера для записи снимка
+    protected static final class SnapshotState {
+        private final List<Task> tasks;
+        private final List<Task> history;
+        private final long journalGeneration;
+
+        private SnapshotState(List<Task> tasks, List<Task> history, long journalGeneration) {
+            this.tasks = tasks;
+            this.history = history;
+            this.journalGeneration = journalGeneration;
+        }
+    }
+}
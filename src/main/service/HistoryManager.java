@@ -13,4 +13,9 @@ public interface HistoryManager {
 
     // Метод для удаления из истории
     void remove(int id);
+
+    // Метод для получения размера истории без копирования
+    default int size() {
+        return getHistory().size();
+    }
 }
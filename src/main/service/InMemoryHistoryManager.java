@@ -44,6 +44,11 @@ public class InMemoryHistoryManager implements HistoryManager {
         return history;
     }
 
+    @Override
+    public int size() {
+        return historyMap.size();
+    }
+
     // Удаление задачи из истории
     @Override
     public void remove(int id) {
@@ -7,37 +7,49 @@ import main.util.Managers;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
     private int taskIdCounter = 1;
-    private Map<Integer, Task> tasks = new HashMap<>();
-    private Map<Integer, Epic> epics = new HashMap<>();
-    private Map<Integer, Subtask> subtasks = new HashMap<>();
+    // Все задачи хранятся в одном хранилище, поля ниже — представления по типам
+    private final TaskStore store = new TaskStore();
+    private final TaskStore.View<Task> tasks = store.view(TaskType.TASK);
+    private final TaskStore.View<Epic> epics = store.view(TaskType.EPIC);
+    private final TaskStore.View<Subtask> subtasks = store.view(TaskType.SUBTASK);
     public HistoryManager history = Managers.getDefaultHistory();
-    private final Set<Task> prioritizedTasks;
+    private final TaskTimeIndex prioritizedTasks;
+    private Batch batch;
+    // Лента изменений создаётся по запросу, до этого события не публикуются
+    private TaskChangeFeed changeFeed;
 
     public InMemoryTaskManager() {
-        this.tasks = new HashMap<>();
-        this.epics = new HashMap<>();
-        this.subtasks = new HashMap<>();
-        this.prioritizedTasks = new TreeSet<>(new TaskStartTimeComparator());
+        this.prioritizedTasks = new TaskTimeIndex();
     }
 
     // Метод для создания обычной задачи
     @Override
     public void createTask(Task task) {
         validateTaskTime(task);
+        insertTask(task);
+    }
+
+    // Добавление задачи, время которой уже проверено
+    private void insertTask(Task task) {
         task.setId(taskIdCounter++);
+        rememberTask(task.getId());
         tasks.put(task.getId(), task);
         addToPrioritizedTasks(task);
+        publish(TaskEventType.CREATED, null, task);
     }
 
     // Метод для создания эпика
     @Override
     public void createEpic(Epic epic) {
         epic.setId(taskIdCounter++);
+        rememberEpic(epic.getId());
         epics.put(epic.getId(), epic);
+        publish(TaskEventType.CREATED, null, epic);
     }
 
     // Метод для создания подзадачи (добавляем только если есть эпик)
@@ -50,12 +62,21 @@ public class InMemoryTaskManager implements TaskManager {
             return;
         }
         validateTaskTime(subtask);
+        insertSubtask(subtask);
+    }
+
+    // Добавление подзадачи существующего эпика, время которой уже проверено
+    private void insertSubtask(Subtask subtask) {
         subtask.setId(taskIdCounter++);
+        rememberSubtask(subtask.getId());
         subtasks.put(subtask.getId(), subtask);
+        publish(TaskEventType.CREATED, null, subtask);
         Optional.ofNullable(epics.get(subtask.getEpicId()))
                 .ifPresent(epic -> {
+                    rememberEpicSubtasks(epic);
                     epic.addSubtask(subtask.getId());
-                    updateEpicStatus(epic);
+                    epic.countSubtask(subtask);
+                    refreshEpic(epic);
                 });
 
         addToPrioritizedTasks(subtask);
@@ -66,6 +87,7 @@ public class InMemoryTaskManager implements TaskManager {
     public Task getTaskById(int id) {
         return Optional.ofNullable(tasks.get(id))
                 .map(task -> {
+                    handOut(task);
                     history.add(task);
                     return task;
                 })
@@ -77,6 +99,7 @@ public class InMemoryTaskManager implements TaskManager {
     public Epic getEpicById(int id) {
         return Optional.ofNullable(epics.get(id))
                 .map(epic -> {
+                    handOut(epic);
                     history.add(epic);
                     return epic;
                 })
@@ -88,99 +111,146 @@ public class InMemoryTaskManager implements TaskManager {
     public Subtask getSubtaskById(int id) {
         return Optional.ofNullable(subtasks.get(id))
                 .map(subtask -> {
+                    handOut(subtask);
                     history.add(subtask);
                     return subtask;
                 })
                 .orElse(null);
     }
 
-    // Обновление статуса задачи
+    // Обновление статуса задачи; ID, занятый эпиком или подзадачей, не обновляется
     @Override
     public void updateTask(Task task) {
+        if (isOtherType(task.getId(), TaskType.TASK)) {
+            return;
+        }
         validateTaskTime(task);
-        Optional.ofNullable(tasks.get(task.getId()))
-                .ifPresent(this::removeFromPrioritizedTasks);
+        rememberTask(task.getId());
+        Task previous = tasks.get(task.getId());
+        if (previous != null) {
+            removeFromPrioritizedTasks(previous);
+        }
 
         tasks.put(task.getId(), task);
         addToPrioritizedTasks(task);
+        publishReplaced(previous, task);
     }
 
-    // Обновление статуса подзадачи
+    // Обновление статуса подзадачи; ID, занятый задачей или эпиком, не обновляется
     @Override
     public void updateSubtask(Subtask subtask) {
+        if (isOtherType(subtask.getId(), TaskType.SUBTASK)) {
+            return;
+        }
         validateTaskTime(subtask);
-        Optional.ofNullable(subtasks.get(subtask.getId()))
-                .ifPresent(this::removeFromPrioritizedTasks);
+        replaceSubtask(subtask);
+    }
+
+    // Замена подзадачи, время которой уже проверено
+    private void replaceSubtask(Subtask subtask) {
+        rememberSubtask(subtask.getId());
+        Subtask previous = subtasks.get(subtask.getId());
+        if (previous != null) {
+            removeFromPrioritizedTasks(previous);
+        }
 
         subtasks.put(subtask.getId(), subtask);
+        publishReplaced(previous, subtask);
 
         Optional.ofNullable(epics.get(subtask.getEpicId()))
-                .ifPresent(this::updateEpicStatus);
+                .filter(epic -> epic.isSubtaskCounted(subtask.getId()))
+                .ifPresent(epic -> {
+                    rememberEpicSubtasks(epic);
+                    epic.countSubtask(subtask);
+                    refreshEpic(epic);
+                });
 
         addToPrioritizedTasks(subtask);
 
     }
 
-    // Метод обнавления статуса эпика
+    // Метод обнавления статуса эпика; ID, занятый задачей или подзадачей, не обновляется
     @Override
     public void updateEpic(Epic epic) {
-        epics.put(epic.getId(), epic);
-        updateEpicStatus(epic);
+        if (isOtherType(epic.getId(), TaskType.EPIC)) {
+            return;
+        }
+        rememberEpic(epic.getId());
+        Epic previous = epics.put(epic.getId(), epic);
+        if (previous != null && previous != epic) {
+            // Состав подзадач ведёт менеджер: переносим его из хранимого эпика и учитываем подзадачи заново
+            epic.removeAllSubtasks();
+            previous.forEachSubtaskId(subtaskId -> {
+                epic.addSubtask(subtaskId);
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) {
+                    epic.countSubtask(subtask);
+                }
+            });
+        }
+        publishReplaced(previous, epic);
+        refreshEpic(epic);
     }
 
-    // Обновление статуса эпика в зависимости от статусов его подзадач
+    // Полный пересчёт статуса и времени эпика по его подзадачам с восстановлением учтённых показателей.
+    // При изменениях подзадач показатели поддерживаются инкрементально, пересчёт нужен для проверки и исправления
     @Override
     public void updateEpicStatus(Epic epic) {
-        List<TaskStatus> subtaskStatuses = getSubtasksForEpic(epic.getId()).stream()
-                .map(Task::getStatus)
-                .collect(Collectors.toList());
-
-        if (subtaskStatuses.isEmpty()) {
-            epic.setStatus(TaskStatus.NEW);
-        } else if (subtaskStatuses.stream().allMatch(status -> status == TaskStatus.NEW)) {
-            epic.setStatus(TaskStatus.NEW);
-        } else if (subtaskStatuses.stream().allMatch(status -> status == TaskStatus.DONE)) {
-            epic.setStatus(TaskStatus.DONE);
-        } else {
-            epic.setStatus(TaskStatus.IN_PROGRESS);
-        }
+        epic.resetSubtaskCounts();
+        epic.forEachSubtaskId(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                epic.countSubtask(subtask);
+            }
+        });
+        applyEpicRollup(epic);
     }
 
     // Удаление задачи по ID
     @Override
     public void deleteTaskById(int id) {
+        rememberTask(id);
         Optional.ofNullable(tasks.get(id))
                 .ifPresent(this::removeFromPrioritizedTasks);
 
-        tasks.remove(id);
-        history.remove(id);
+        publishDeleted(tasks.remove(id));
+        removeFromHistory(id);
     }
 
     // Удаление эпика и его подзадач по ID
     @Override
     public void deleteEpicById(int id) {
+        rememberEpic(id);
         Optional.ofNullable(epics.remove(id))
-                .ifPresent(epic -> epic.getSubtasks().forEach(subtaskId -> {
-                    subtasks.remove(subtaskId);
-                    history.remove(subtaskId);
-                }));
+                .ifPresent(epic -> {
+                    publishDeleted(epic);
+                    epic.forEachSubtaskId(subtaskId -> {
+                        rememberSubtask(subtaskId);
+                        publishDeleted(subtasks.remove(subtaskId));
+                        prioritizedTasks.remove(subtaskId);
+                        removeFromHistory(subtaskId);
+                    });
+                });
 
-        history.remove(id);
+        removeFromHistory(id);
     }
 
     // Удаление подзадачи по ID и обновление статуса эпика
     @Override
     public void deleteSubtaskById(int id) {
+        rememberSubtask(id);
         Subtask subtask = subtasks.remove(id);
         if (subtask != null) {
             removeFromPrioritizedTasks(subtask);
+            publishDeleted(subtask);
         }
-        history.remove(id);
+        removeFromHistory(id);
         if (subtask != null) {
             Epic epic = epics.get(subtask.getEpicId());
             if (epic != null) {
+                rememberEpicSubtasks(epic);
                 epic.removeSubtask(id);
-                updateEpicStatus(epic);
+                refreshEpic(epic);
             }
         }
     }
@@ -188,50 +258,146 @@ public class InMemoryTaskManager implements TaskManager {
     // Метод для получения списка всех задач
     @Override
     public List<Task> getAllTasks() {
+        tasks.values().forEach(this::rememberState);
         return new ArrayList<>(tasks.values());
     }
 
     // Метод для получения всех эпиков
     @Override
     public List<Epic> getAllEpics() {
+        epics.values().forEach(this::rememberState);
         return new ArrayList<>(epics.values());
     }
 
     // Метод получения всех подзадач
     @Override
     public List<Subtask> getAllSubtasks() {
+        subtasks.values().forEach(this::rememberState);
         return new ArrayList<>(subtasks.values());
     }
 
     // Метод для получения списка всех подзадач для эпика
     @Override
     public List<Subtask> getSubtasksForEpic(int epicId) {
-        return Optional.ofNullable(epics.get(epicId))
-                .map(epic -> epic.getSubtasks().stream()
-                        .map(subtasks::get)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList()))
-                .orElse(new ArrayList<>());
+        Epic epic = epics.get(epicId);
+        if (epic == null) {
+            return new ArrayList<>();
+        }
+        List<Subtask> result = new ArrayList<>(epic.getSubtaskCount());
+        epic.forEachSubtaskId(subtaskId -> {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                rememberState(subtask);
+                result.add(subtask);
+            }
+        });
+        return result;
     }
 
     // Метод для получения статуса задачи по ID, больше для удобства вывода
     public String getTaskStatusById(int id) {
-        if (tasks.containsKey(id)) {
-            return tasks.get(id).getStatus().toString();
-        } else if (subtasks.containsKey(id)) {
-            return subtasks.get(id).getStatus().toString();
-        } else if (epics.containsKey(id)) {
-            return epics.get(id).getStatus().toString();
-        } else {
-            return "Удалена";
+        Task task = store.get(id);
+        return task != null ? task.getStatus().toString() : "Удалена";
+    }
+
+    // Метод для поиска задачи любого типа по ID без записи в историю
+    @Override
+    public Task findTask(int id) {
+        return store.get(id);
+    }
+
+    // Метод для восстановления задачи с сохранённым ID (без генерации ID и проверки времени)
+    protected void restoreTask(Task task) {
+        switch (task.getType()) {
+            case EPIC:
+                Epic epic = (Epic) task;
+                Epic previous = epics.get(epic.getId());
+                if (previous != null && previous != epic) {
+                    previous.forEachSubtaskId(epic::addSubtask);
+                }
+                epics.put(epic.getId(), epic);
+                break;
+            case SUBTASK:
+                Subtask subtask = (Subtask) task;
+                Epic owner = epics.get(subtask.getEpicId());
+                if (owner == null) {
+                    throw new IllegalArgumentException("Нельзя восстановить подзадачу без существующего эпика: "
+                            + subtask.getId());
+                }
+                if (!subtasks.containsKey(subtask.getId())) {
+                    owner.addSubtask(subtask.getId());
+                }
+                owner.countSubtask(subtask);
+                subtasks.put(subtask.getId(), subtask);
+                prioritizedTasks.add(subtask);
+                break;
+            default:
+                tasks.put(task.getId(), task);
+                prioritizedTasks.add(task);
+        }
+        if (task.getId() >= taskIdCounter) {
+            taskIdCounter = task.getId() + 1;
+        }
+    }
+
+    // Метод для массового восстановления задач при загрузке: ID сохраняются, проверка времени выполняется
+    // один раз проходом по отсортированному списку, статус каждого эпика пересчитывается один раз
+    protected void restoreTasks(Collection<? extends Task> restored) {
+        List<Task> scheduled = new ArrayList<>();
+        for (Task task : restored) {
+            if (!(task instanceof Epic) && task.hasStartTime()) {
+                scheduled.add(task);
+            }
+        }
+        scheduled.sort(new TaskStartTimeComparator());
+        Task intersecting = prioritizedTasks.findIntersection(scheduled);
+        if (intersecting != null) {
+            throw new TaskTimeIntersectionException(
+                    "Задача пересекается по времени с уже существующей задачей: " + intersecting);
+        }
+
+        int maxId = taskIdCounter - 1;
+        for (Task task : restored) {
+            if (task instanceof Epic) {
+                epics.put(task.getId(), (Epic) task);
+            } else if (!(task instanceof Subtask)) {
+                tasks.put(task.getId(), task);
+            }
+            maxId = Math.max(maxId, task.getId());
+        }
+        for (Task task : restored) {
+            if (task instanceof Subtask) {
+                Subtask subtask = (Subtask) task;
+                Epic owner = epics.get(subtask.getEpicId());
+                if (owner == null) {
+                    throw new IllegalArgumentException("Нельзя восстановить подзадачу без существующего эпика: "
+                            + subtask.getId());
+                }
+                if (subtasks.put(subtask.getId(), subtask) == null) {
+                    owner.addSubtask(subtask.getId());
+                }
+                owner.countSubtask(subtask);
+            }
+        }
+        for (Task task : scheduled) {
+            prioritizedTasks.add(task);
         }
+        for (Task task : restored) {
+            if (task instanceof Epic) {
+                applyEpicRollup((Epic) task);
+            }
+        }
+        taskIdCounter = maxId + 1;
     }
 
     // Метод для удаления всех задач
     @Override
     public void deleteAllTasks() {
         for (Task task : tasks.values()) {
-            history.remove(task.getId());
+            rememberTask(task.getId());
+            removeFromHistory(task.getId());
+            prioritizedTasks.remove(task.getId());
+            publishDeleted(task);
         }
         tasks.clear();
     }
@@ -239,9 +405,11 @@ public class InMemoryTaskManager implements TaskManager {
     // Метод для удаления всех эпиков и подзадач
     @Override
     public void deleteAllEpics() {
-        deleteAllSubtasks();
+        clearSubtasks();
         for (Epic epic : epics.values()) {
-            history.remove(epic.getId());
+            rememberEpic(epic.getId());
+            removeFromHistory(epic.getId());
+            publishDeleted(epic);
         }
         epics.clear();
     }
@@ -249,11 +417,21 @@ public class InMemoryTaskManager implements TaskManager {
     // Метод для удаления всех подзадач
     @Override
     public void deleteAllSubtasks() {
+        clearSubtasks();
+    }
+
+    // Удаление подзадач без вызова переопределяемых методов (наследники сохраняют изменения сами)
+    private void clearSubtasks() {
         for (Subtask subtask : subtasks.values()) {
-            history.remove(subtask.getId());
+            rememberSubtask(subtask.getId());
+            removeFromHistory(subtask.getId());
+            prioritizedTasks.remove(subtask.getId());
+            publishDeleted(subtask);
         }
         for (Epic epic : epics.values()) {
+            rememberEpicSubtasks(epic);
             epic.removeAllSubtasks();
+            refreshEpic(epic);
         }
         subtasks.clear();
     }
@@ -263,81 +441,512 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     @Override
-    public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+    public int getHistorySize() {
+        return history.size();
     }
 
-    private void addToPrioritizedTasks(Task task) {
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
+    // Метод для выполнения нескольких изменений одной пачкой.
+    // Статусы затронутых эпиков пересчитываются один раз в конце, при исключении состояние откатывается
+    @Override
+    public void batch(Consumer<TaskManager> operations) {
+        if (batch != null) {
+            operations.accept(this);
+            return;
+        }
+        batch = new Batch(taskIdCounter);
+        try {
+            operations.accept(this);
+        } catch (RuntimeException | Error e) {
+            rollbackBatch();
+            throw e;
         }
+        Batch committed = batch;
+        batch = null;
+        if (changeFeed != null) {
+            committed.events.forEach(event -> changeFeed.publish(event.type, event.before, event.after));
+        }
+        committed.touchedEpics.forEach(id -> Optional.ofNullable(epics.get(id)).ifPresent(this::refreshEpic));
     }
 
-    private void removeFromPrioritizedTasks(Task task) {
-        prioritizedTasks.remove(task);
+    // Выборки и подсчёт по статусу из вторичного индекса хранилища: O(k) и O(1) вместо обхода всех задач.
+    // Индекс учитывает статус на момент последнего изменения через менеджер (создание, обновление, пересчёт эпика)
+    @Override
+    public List<Task> getByStatus(TaskStatus status) {
+        return store.getByStatus(status);
     }
 
-    private void validateTaskTime(Task task) {
-        if (task.getStartTime() == null) return;
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return store.getByStatus(TaskType.TASK, status);
+    }
 
-        boolean hasIntersection = getPrioritizedTasks().stream()
-                .filter(existingTask -> !existingTask.equals(task))
-                .anyMatch(existingTask -> {
-                    if (existingTask.getStartTime() == null) return false;
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return store.getByStatus(TaskType.EPIC, status);
+    }
 
-                    LocalDateTime newTaskStart = task.getStartTime();
-                    LocalDateTime newTaskEnd = task.getEndTime();
-                    LocalDateTime existingTaskStart = existingTask.getStartTime();
-                    LocalDateTime existingTaskEnd = existingTask.getEndTime();
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return store.getByStatus(TaskType.SUBTASK, status);
+    }
 
-                    return !(newTaskEnd.isBefore(existingTaskStart) ||
-                            newTaskStart.isAfter(existingTaskEnd));
-                });
+    @Override
+    public Map<TaskStatus, Integer> countByStatus() {
+        return store.countByStatus();
+    }
 
-        if (hasIntersection) {
-            throw new TaskTimeIntersectionException(
-                    "Задача пересекается по времени с уже существующей задачей: " + task);
-        }
+    // Поиск по инвертированному индексу хранилища: время зависит от числа задач с самым редким словом запроса
+    @Override
+    public List<Task> search(String query, int limit) {
+        return store.search(query, limit);
+    }
 
+    // Массовое создание задач: время всех задач проверяется одной сортировкой и одним проходом слиянием
+    // по индексу, задачи с пересечением отклоняются по отдельности, остальные добавляются одной пачкой
+    @Override
+    public BulkResult createTasks(Collection<? extends Task> newTasks) {
+        List<Task> items = new ArrayList<>(newTasks);
+        RuntimeException[] errors = new RuntimeException[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == null) {
+                errors[i] = new IllegalArgumentException("Задача не может быть null");
+            }
+        }
+        rejectIntersections(items, errors);
+        return applyBulk(items, errors, this::insertTask);
     }
 
-    // Метод обновления времени и продолжительности задачи
-    public void updateTimeAndDuration(Epic epic) {
-        if (epic.getSubtasks().isEmpty()) {
-            epic.setStartTime(null);
-            epic.setDuration(Duration.ZERO);
-            epic.setEndTime(null);
-            return;
+    // Массовое создание подзадач: проверка эпиков и времени до изменений, статус и время каждого
+    // затронутого эпика пересчитываются один раз в конце пачки
+    @Override
+    public BulkResult createSubtasks(Collection<? extends Subtask> newSubtasks) {
+        List<Subtask> items = new ArrayList<>(newSubtasks);
+        RuntimeException[] errors = new RuntimeException[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Subtask subtask = items.get(i);
+            if (subtask == null) {
+                errors[i] = new IllegalArgumentException("Подзадача не может быть null");
+            } else if (!epics.containsKey(subtask.getEpicId())) {
+                errors[i] = new IllegalArgumentException("Нельзя создать подзадачу без существующего эпика");
+            } else if (subtask.getEpicId() == subtask.getId()) {
+                errors[i] = new IllegalArgumentException("Подзадача не может быть своим эпиком");
+            }
         }
+        rejectIntersections(items, errors);
+        return applyBulk(items, errors, this::insertSubtask);
+    }
 
-        LocalDateTime earliestStart = null;
-        LocalDateTime latestEnd = null;
-        Duration totalDuration = Duration.ZERO;
+    // Массовое обновление подзадач: в отличие от одиночного обновления отсутствующая подзадача — ошибка элемента.
+    // Прежний интервал подзадачи не мешает её новому времени, интервалы других обновляемых подзадач учитываются
+    // по состоянию до пачки
+    @Override
+    public BulkResult updateSubtasks(Collection<? extends Subtask> updatedSubtasks) {
+        List<Subtask> items = new ArrayList<>(updatedSubtasks);
+        RuntimeException[] errors = new RuntimeException[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Subtask subtask = items.get(i);
+            if (subtask == null) {
+                errors[i] = new IllegalArgumentException("Подзадача не может быть null");
+            } else if (!subtasks.containsKey(subtask.getId())) {
+                errors[i] = new NoSuchElementException("Подзадача не найдена: " + subtask.getId());
+            }
+        }
+        rejectIntersections(items, errors);
+        return applyBulk(items, errors, this::replaceSubtask);
+    }
 
-        for (Integer subtaskId : epic.getSubtasks()) {
-            Subtask subtask = subtasks.get(subtaskId);
-            if (subtask.getStartTime() != null) {
-                if (earliestStart == null || subtask.getStartTime().isBefore(earliestStart)) {
-                    earliestStart = subtask.getStartTime();
+    // Массовое удаление задач любого типа по ID одной пачкой; эпики удаляемых подзадач пересчитываются один раз
+    @Override
+    public BulkResult deleteByIds(int... ids) {
+        BulkResult result = new BulkResult(ids.length);
+        batch(manager -> {
+            for (int i = 0; i < ids.length; i++) {
+                int id = ids[i];
+                Task task = store.get(id);
+                if (task == null) {
+                    result.fail(i, id, new NoSuchElementException("Задача не найдена: " + id));
+                    continue;
                 }
-                LocalDateTime subtaskEnd = subtask.getEndTime();
-                if (latestEnd == null || subtaskEnd.isAfter(latestEnd)) {
-                    latestEnd = subtaskEnd;
+                switch (store.typeOf(id)) {
+                    case TASK:
+                        deleteTaskById(id);
+                        break;
+                    case EPIC:
+                        deleteEpicById(id);
+                        break;
+                    default:
+                        deleteSubtaskById(id);
                 }
+                result.succeed(i, task);
+            }
+        });
+        return result;
+    }
+
+    // Метод для отметки задач, пересекающихся с расписанием или между собой: одна сортировка и один проход
+    private void rejectIntersections(List<? extends Task> items, RuntimeException[] errors) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (errors[i] == null && items.get(i).hasStartTime()) {
+                order.add(i);
             }
-            if (subtask.getDuration() != null) {
-                totalDuration = totalDuration.plus(subtask.getDuration());
+        }
+        if (order.isEmpty()) {
+            return;
+        }
+        TaskStartTimeComparator comparator = new TaskStartTimeComparator();
+        order.sort((first, second) -> comparator.compare(items.get(first), items.get(second)));
+        List<Task> sorted = new ArrayList<>(order.size());
+        for (int index : order) {
+            sorted.add(items.get(index));
+        }
+        boolean[] rejected = prioritizedTasks.sweepIntersections(sorted);
+        for (int k = 0; k < rejected.length; k++) {
+            if (rejected[k]) {
+                errors[order.get(k)] = new TaskTimeIntersectionException(
+                        "Задача пересекается по времени с уже существующей задачей: " + sorted.get(k));
             }
         }
+    }
 
-        epic.setStartTime(earliestStart);
-        epic.setDuration(totalDuration);
-        epic.setEndTime(latestEnd);
+    // Метод для применения проверенных элементов одной пачкой в порядке входа
+    private <T extends Task> BulkResult applyBulk(List<T> items, RuntimeException[] errors, Consumer<T> apply) {
+        BulkResult result = new BulkResult(items.size());
+        batch(manager -> {
+            for (int i = 0; i < items.size(); i++) {
+                T item = items.get(i);
+                if (errors[i] != null) {
+                    result.fail(i, item == null ? 0 : item.getId(), errors[i]);
+                } else {
+                    apply.accept(item);
+                    result.succeed(i, item);
+                }
+            }
+        });
+        return result;
     }
 
-}
+    // Метод для получения ленты событий изменений (создание, обновление, удаление, смена статуса эпика)
+    // с ёмкостью по умолчанию; лента включается при первом обращении.
+    // Лента рассчитана на одного писателя, поэтому её публикует только этот менеджер и его наследники
+    public TaskChangeFeed getChangeFeed() {
+        return enableChangeFeed(TaskChangeFeed.DEFAULT_CAPACITY);
+    }
 
+    // Метод для включения ленты изменений с заданной ёмкостью буфера (округляется вверх до степени двойки);
+    // если лента уже включена, возвращается она
+    public TaskChangeFeed enableChangeFeed(int capacity) {
+        if (changeFeed == null) {
+            changeFeed = new TaskChangeFeed(capacity);
+        }
+        return changeFeed;
+    }
 
+    // Метод для публикации события со снимками задачи. Снимок «до» — копия заменённого объекта previous;
+    // если объект изменили на месте и передали его же, прежнее состояние неизвестно и снимка «до» нет
+    private void publish(TaskEventType type, Task previous, Task task) {
+        if (changeFeed == null) {
+            return;
+        }
+        Task beforeCopy = previous == null || previous == task ? null : previous.copy();
+        publishSnapshots(type, beforeCopy, task == null ? null : task.copy());
+    }
 
+    // Метод для публикации готовых снимков; внутри пачки событие откладывается до её завершения
+    private void publishSnapshots(TaskEventType type, Task beforeCopy, Task afterCopy) {
+        if (batch != null) {
+            batch.events.add(new PendingEvent(type, beforeCopy, afterCopy));
+        } else {
+            changeFeed.publish(type, beforeCopy, afterCopy);
+        }
+    }
+
+    // Обновление отсутствующей задачи добавляет её, поэтому публикуется как создание
+    private void publishReplaced(Task previous, Task task) {
+        publish(previous == null ? TaskEventType.CREATED : TaskEventType.UPDATED, previous, task);
+    }
+
+    private void publishDeleted(Task task) {
+        if (task != null) {
+            publish(TaskEventType.DELETED, task, null);
+        }
+    }
+
+    // Метод проверки, что менеджер находится внутри пачки изменений
+    protected boolean isInBatch() {
+        return batch != null;
+    }
+
+    // Метод для отката всех изменений текущей пачки
+    private void rollbackBatch() {
+        Batch rolledBack = batch;
+        batch = null;
+        taskIdCounter = rolledBack.taskIdCounter;
+        // Индекс времени перестраивается для всех затронутых задач по восстановленным значениям полей
+        Set<Integer> scheduled = new LinkedHashSet<>(rolledBack.tasks.keySet());
+        scheduled.addAll(rolledBack.subtasks.keySet());
+        rolledBack.states.keySet().stream()
+                .filter(task -> !(task instanceof Epic))
+                .forEach(task -> scheduled.add(task.getId()));
+        scheduled.forEach(prioritizedTasks::remove);
+        rolledBack.states.forEach(InMemoryTaskManager::restoreState);
+        restore(tasks, rolledBack.tasks);
+        restore(epics, rolledBack.epics);
+        restore(subtasks, rolledBack.subtasks);
+        // Объекты, изменённые на месте без замены, заново учитываются во вторичных индексах хранилища
+        rolledBack.states.keySet().forEach(task -> {
+            if (store.get(task.getId()) == task) {
+                store.put(task.getId(), task, store.typeOf(task.getId()));
+            }
+        });
+        rolledBack.epicSubtasks.forEach((epic, subtaskIds) -> {
+            epic.removeAllSubtasks();
+            for (int subtaskId : subtaskIds) {
+                epic.addSubtask(subtaskId);
+            }
+        });
+        scheduled.forEach(id -> {
+            Task task = store.get(id);
+            if (task != null && !(task instanceof Epic)) {
+                addToPrioritizedTasks(task);
+            }
+        });
+        if (rolledBack.history != null) {
+            for (Task task : history.getHistory()) {
+                history.remove(task.getId());
+            }
+            rolledBack.history.forEach(history::add);
+        }
+        rolledBack.touchedEpics.forEach(this::recountEpic);
+    }
+
+    private static <T extends Task> void restore(TaskStore.View<T> store, Map<Integer, T> before) {
+        before.forEach((id, task) -> {
+            if (task == null) {
+                store.remove(id);
+            } else {
+                store.put(id, task);
+            }
+        });
+    }
+
+    // Методы для запоминания состояния записи перед первым изменением внутри пачки:
+    // хранимый объект и копия его полей, чтобы откатить и замену объекта, и его изменение на месте
+    private void rememberTask(int id) {
+        if (batch != null && !batch.tasks.containsKey(id)) {
+            batch.tasks.put(id, rememberState(tasks.get(id)));
+        }
+    }
+
+    private void rememberEpic(int id) {
+        if (batch != null && !batch.epics.containsKey(id)) {
+            batch.epics.put(id, rememberState(epics.get(id)));
+            batch.touchedEpics.add(id);
+        }
+    }
+
+    private void rememberSubtask(int id) {
+        if (batch != null && !batch.subtasks.containsKey(id)) {
+            batch.subtasks.put(id, rememberState(subtasks.get(id)));
+        }
+    }
+
+    // Копия полей объекта делается при первой выдаче или изменении внутри пачки, то есть до изменения на месте.
+    // Объекты, полученные до пачки или через представления и потоки, откатываются, только если пачка их изменяет
+    // через менеджер после первого обращения
+    private <T extends Task> T rememberState(T task) {
+        if (batch != null && task != null && !batch.states.containsKey(task)) {
+            batch.states.put(task, task.copy());
+        }
+        return task;
+    }
+
+    // Запоминание выданной задачи и истории, в которую она сейчас попадёт
+    private void handOut(Task task) {
+        rememberState(task);
+        if (batch != null && batch.history == null) {
+            batch.history = history.getHistory();
+        }
+    }
+
+    private boolean isOtherType(int id, TaskType type) {
+        TaskType current = store.typeOf(id);
+        return current != null && current != type;
+    }
+
+    // Метод для возврата полей объекта к сохранённой копии
+    static void restoreState(Task task, Task state) {
+        task.setId(state.getId());
+        task.setName(state.getName());
+        task.setDescription(state.getDescription());
+        task.setStatus(state.getStatus());
+        task.setDuration(state.getDuration());
+        task.setStartTime(state.getStartTime());
+        if (task instanceof Epic) {
+            ((Epic) task).setEndTime(state.getEndTime());
+        }
+    }
+
+    private void rememberEpicSubtasks(Epic epic) {
+        if (batch != null && !batch.epicSubtasks.containsKey(epic)) {
+            batch.epicSubtasks.put(epic, epic.getSubtaskIds());
+        }
+    }
+
+    private void removeFromHistory(int id) {
+        if (batch != null && batch.history == null) {
+            batch.history = history.getHistory();
+        }
+        history.remove(id);
+    }
 
+    // Обновление статуса и времени эпика по учтённым показателям; внутри пачки откладывается до её завершения
+    private void refreshEpic(Epic epic) {
+        if (batch != null) {
+            batch.touchedEpics.add(epic.getId());
+        } else {
+            applyEpicRollup(epic);
+        }
+    }
 
+    // Применение учтённых показателей к эпику с переучётом его статуса во вторичном индексе.
+    // Снимки события пересчёта не копируют список подзадач: O(1) на каждое изменение подзадачи
+    private void applyEpicRollup(Epic epic) {
+        if (changeFeed == null) {
+            epic.applySubtaskRollup();
+        } else {
+            Epic before = epic.copyWithoutSubtasks();
+            epic.applySubtaskRollup();
+            if (epic.getStatus() != before.getStatus()) {
+                publishSnapshots(TaskEventType.EPIC_STATUS_CHANGED, before, epic.copyWithoutSubtasks());
+            }
+        }
+        store.reindex(epic.getId());
+    }
+
+    // Полный пересчёт статуса эпика по ID (после отката пачки счётчики недостоверны)
+    private void recountEpic(int id) {
+        Optional.ofNullable(epics.get(id)).ifPresent(this::updateEpicStatus);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return prioritizedTasks.getTasks();
+    }
+
+    // Выборка по окну времени из индекса за O(log n + k)
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return prioritizedTasks.getTasks(from, to);
+    }
+
+    @Override
+    public List<Task> nextTasks(LocalDateTime after, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер выборки не может быть отрицательным: " + limit);
+        }
+        return prioritizedTasks.getTasksAfter(after, limit);
+    }
+
+    // Поиск свободных интервалов обходом промежутков индекса
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                             int count) {
+        return prioritizedTasks.findFreeSlots(duration, notBefore, notAfter, count);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.values().stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.values().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.values().stream();
+    }
+
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return prioritizedTasks.tasks().stream();
+    }
+
+    // Живые представления: менеджер однопоточный, но изменять его во время обхода представления нельзя
+    @Override
+    public Collection<Task> getTasksView() {
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return Collections.unmodifiableCollection(epics.values());
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return Collections.unmodifiableCollection(subtasks.values());
+    }
+
+    @Override
+    public Collection<Task> getPrioritizedTasksView() {
+        return Collections.unmodifiableCollection(prioritizedTasks.tasks());
+    }
+
+    private void addToPrioritizedTasks(Task task) {
+        prioritizedTasks.add(task);
+    }
+
+    private void removeFromPrioritizedTasks(Task task) {
+        prioritizedTasks.remove(task.getId());
+    }
+
+    // Проверка пересечения по индексу времени за O(log n) вместо перебора всех задач
+    private void validateTaskTime(Task task) {
+        if (prioritizedTasks.hasIntersection(task)) {
+            throw new TaskTimeIntersectionException(
+                    "Задача пересекается по времени с уже существующей задачей: " + task);
+        }
+
+    }
+
+    // Метод обновления времени и продолжительности эпика: полный пересчёт по подзадачам.
+    // Создание, изменение и удаление подзадач поддерживают время эпика инкрементально
+    public void updateTimeAndDuration(Epic epic) {
+        updateEpicStatus(epic);
+    }
+
+    private static final class PendingEvent {
+        private final TaskEventType type;
+        private final Task before;
+        private final Task after;
+
+        PendingEvent(TaskEventType type, Task before, Task after) {
+            this.type = type;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    // Состояние, необходимое для отката пачки: исходные значения затронутых записей
+    private static final class Batch {
+        private final int taskIdCounter;
+        private final Map<Integer, Task> tasks = new HashMap<>();
+        private final Map<Integer, Epic> epics = new HashMap<>();
+        private final Map<Integer, Subtask> subtasks = new HashMap<>();
+        private final Map<Epic, int[]> epicSubtasks = new IdentityHashMap<>();
+        // Копии полей объектов, выданных или изменённых внутри пачки, по самому объекту
+        private final Map<Task, Task> states = new IdentityHashMap<>();
+        private final Set<Integer> touchedEpics = new LinkedHashSet<>();
+        // События пачки публикуются только при её завершении, при откате отбрасываются
+        private final List<PendingEvent> events = new ArrayList<>();
+        private List<Task> history;
+
+        Batch(int taskIdCounter) {
+            this.taskIdCounter = taskIdCounter;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package main.service;
+
+import main.model.Task;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Декоратор истории просмотров, собирающий задержки операций и размер истории
+public class InstrumentedHistoryManager implements HistoryManager {
+    private final HistoryManager delegate;
+    private final InstrumentedOperation add = new InstrumentedOperation("history_add");
+    private final InstrumentedOperation getHistory = new InstrumentedOperation("history_get");
+    private final InstrumentedOperation remove = new InstrumentedOperation("history_remove");
+
+    public InstrumentedHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+    }
+
+    // Метод для получения снимка метрик
+    public MetricsSnapshot getMetrics() {
+        Map<String, MetricsSnapshot.OperationMetrics> operations = new LinkedHashMap<>();
+        for (InstrumentedOperation operation : List.of(add, getHistory, remove)) {
+            operations.put(operation.getName(), operation.snapshot());
+        }
+        return new MetricsSnapshot(operations, Map.of("history_size", (long) delegate.size()));
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void add(Task task) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.add(task);
+            failed = false;
+        } finally {
+            add.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Task> history = delegate.getHistory();
+            failed = false;
+            return history;
+        } finally {
+            getHistory.record(start, failed);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.remove(id);
+            failed = false;
+        } finally {
+            remove.record(start, failed);
+        }
+    }
+}
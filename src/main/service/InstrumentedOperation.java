@@ -0,0 +1,31 @@
+package main.service;
+
+import main.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Учёт одной операции декоратора: задержки всех вызовов и число завершившихся исключением
+final class InstrumentedOperation {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    InstrumentedOperation(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void record(long startNanos, boolean failed) {
+        latency.record(System.nanoTime() - startNanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    MetricsSnapshot.OperationMetrics snapshot() {
+        return new MetricsSnapshot.OperationMetrics(latency.snapshot(), errors.sum());
+    }
+}
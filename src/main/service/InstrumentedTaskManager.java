@@ -0,0 +1,418 @@
+package main.service;
+
+import main.exception.TaskTimeIntersectionException;
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.model.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Декоратор менеджера задач, собирающий метрики: гистограмму задержек и число ошибок по каждому методу,
+// число отказов из-за пересечения по времени, размеры состояния и истории, а для FileBackedTaskManager —
+// объём и длительность записи и загрузки файла. Потокобезопасен, если потокобезопасен исходный менеджер.
+// Размеры состояния и истории поток, выполнивший операцию, публикует в volatile-поля, поэтому опрос метрик
+// из другого потока не обращается к исходному менеджеру и видит размеры на момент последней завершённой операции
+public class InstrumentedTaskManager implements TaskManager {
+    private final TaskManager delegate;
+    private final Map<String, InstrumentedOperation> operations = new LinkedHashMap<>();
+    private final LongAdder overlapRejections = new LongAdder();
+    private volatile long taskCount;
+    private volatile long epicCount;
+    private volatile long subtaskCount;
+    private volatile long historySize;
+
+    private final InstrumentedOperation createTask = operation("createTask");
+    private final InstrumentedOperation createEpic = operation("createEpic");
+    private final InstrumentedOperation createSubtask = operation("createSubtask");
+    private final InstrumentedOperation getTaskById = operation("getTaskById");
+    private final InstrumentedOperation getEpicById = operation("getEpicById");
+    private final InstrumentedOperation getSubtaskById = operation("getSubtaskById");
+    private final InstrumentedOperation updateTask = operation("updateTask");
+    private final InstrumentedOperation updateSubtask = operation("updateSubtask");
+    private final InstrumentedOperation updateEpic = operation("updateEpic");
+    private final InstrumentedOperation deleteTaskById = operation("deleteTaskById");
+    private final InstrumentedOperation deleteEpicById = operation("deleteEpicById");
+    private final InstrumentedOperation deleteSubtaskById = operation("deleteSubtaskById");
+    private final InstrumentedOperation getAllTasks = operation("getAllTasks");
+    private final InstrumentedOperation getAllEpics = operation("getAllEpics");
+    private final InstrumentedOperation getAllSubtasks = operation("getAllSubtasks");
+    private final InstrumentedOperation getSubtasksForEpic = operation("getSubtasksForEpic");
+    private final InstrumentedOperation deleteAllTasks = operation("deleteAllTasks");
+    private final InstrumentedOperation deleteAllEpics = operation("deleteAllEpics");
+    private final InstrumentedOperation deleteAllSubtasks = operation("deleteAllSubtasks");
+    private final InstrumentedOperation getHistory = operation("getHistory");
+    private final InstrumentedOperation updateEpicStatus = operation("updateEpicStatus");
+    private final InstrumentedOperation getPrioritizedTasks = operation("getPrioritizedTasks");
+    private final InstrumentedOperation batch = operation("batch");
+    private final InstrumentedOperation stream = operation("stream");
+    private final InstrumentedOperation getPage = operation("getPage");
+    private final InstrumentedOperation getView = operation("getView");
+    private final InstrumentedOperation getPrioritizedTasksInWindow = operation("getPrioritizedTasksInWindow");
+    private final InstrumentedOperation nextTasks = operation("nextTasks");
+    private final InstrumentedOperation findFreeSlots = operation("findFreeSlots");
+    private final InstrumentedOperation createTasks = operation("createTasks");
+    private final InstrumentedOperation createSubtasks = operation("createSubtasks");
+    private final InstrumentedOperation updateSubtasks = operation("updateSubtasks");
+    private final InstrumentedOperation deleteByIds = operation("deleteByIds");
+    private final InstrumentedOperation getByStatus = operation("getByStatus");
+    private final InstrumentedOperation countByStatus = operation("countByStatus");
+    private final InstrumentedOperation search = operation("search");
+    private final InstrumentedOperation findTask = operation("findTask");
+
+    public InstrumentedTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        publishSizes();
+    }
+
+    // Метод для получения исходного менеджера
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    // Метод для получения снимка метрик; безопасен для периодического опроса из другого потока:
+    // задержки и счётчики накапливаются в потокобезопасных структурах, размеры читаются из volatile-полей,
+    // статистика файла — из LongAdder и гистограмм PersistenceStats
+    public MetricsSnapshot getMetrics() {
+        Map<String, MetricsSnapshot.OperationMetrics> snapshot = new LinkedHashMap<>();
+        operations.forEach((name, operation) -> snapshot.put(name, operation.snapshot()));
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("overlap_rejections", overlapRejections.sum());
+        values.put("tasks", taskCount);
+        values.put("epics", epicCount);
+        values.put("subtasks", subtaskCount);
+        values.put("history_size", historySize);
+        if (delegate instanceof FileBackedTaskManager) {
+            PersistenceStats persistence = ((FileBackedTaskManager) delegate).getPersistenceStats();
+            snapshot.put("persistence_save", new MetricsSnapshot.OperationMetrics(persistence.getSaves(), 0));
+            snapshot.put("persistence_load", new MetricsSnapshot.OperationMetrics(persistence.getLoads(), 0));
+            values.put("persistence_saved_bytes", persistence.getSavedBytes());
+            values.put("persistence_loaded_bytes", persistence.getLoadedBytes());
+        }
+        return new MetricsSnapshot(snapshot, values);
+    }
+
+    @Override
+    public void createTask(Task task) {
+        run(createTask, () -> delegate.createTask(task));
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        run(createEpic, () -> delegate.createEpic(epic));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        run(createSubtask, () -> delegate.createSubtask(subtask));
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return call(getTaskById, () -> delegate.getTaskById(id));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return call(getEpicById, () -> delegate.getEpicById(id));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return call(getSubtaskById, () -> delegate.getSubtaskById(id));
+    }
+
+    @Override
+    public Task findTask(int id) {
+        return call(findTask, () -> delegate.findTask(id));
+    }
+
+    @Override
+    public void updateTask(Task updatedTask) {
+        run(updateTask, () -> delegate.updateTask(updatedTask));
+    }
+
+    @Override
+    public void updateSubtask(Subtask updatedSubtask) {
+        run(updateSubtask, () -> delegate.updateSubtask(updatedSubtask));
+    }
+
+    @Override
+    public void updateEpic(Epic updatedEpic) {
+        run(updateEpic, () -> delegate.updateEpic(updatedEpic));
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        run(deleteTaskById, () -> delegate.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        run(deleteEpicById, () -> delegate.deleteEpicById(id));
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        run(deleteSubtaskById, () -> delegate.deleteSubtaskById(id));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return call(getAllTasks, delegate::getAllTasks);
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return call(getAllEpics, delegate::getAllEpics);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return call(getAllSubtasks, delegate::getAllSubtasks);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksForEpic(int epicId) {
+        return call(getSubtasksForEpic, () -> delegate.getSubtasksForEpic(epicId));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        run(deleteAllTasks, delegate::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        run(deleteAllEpics, delegate::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        run(deleteAllSubtasks, delegate::deleteAllSubtasks);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return call(getHistory, delegate::getHistory);
+    }
+
+    @Override
+    public int getHistorySize() {
+        return delegate.getHistorySize();
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        run(updateEpicStatus, () -> delegate.updateEpicStatus(epic));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return call(getPrioritizedTasks, delegate::getPrioritizedTasks);
+    }
+
+    // Операции внутри пачки выполняются через декоратор и учитываются по отдельности,
+    // поэтому отказ из-за пересечения уже посчитан вложенной операцией
+    @Override
+    public void batch(Consumer<TaskManager> operations) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.batch(manager -> operations.accept(this));
+            failed = false;
+        } finally {
+            batch.record(start, failed);
+        }
+    }
+
+    // Для потоков учитывается только их создание: обход выполняет вызывающий код
+    @Override
+    public Stream<Task> streamTasks() {
+        return call(stream, delegate::streamTasks);
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return call(stream, delegate::streamEpics);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return call(stream, delegate::streamSubtasks);
+    }
+
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return call(stream, delegate::streamPrioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getTasksPage(int offset, int limit) {
+        return call(getPage, () -> delegate.getTasksPage(offset, limit));
+    }
+
+    @Override
+    public List<Epic> getEpicsPage(int offset, int limit) {
+        return call(getPage, () -> delegate.getEpicsPage(offset, limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksPage(int offset, int limit) {
+        return call(getPage, () -> delegate.getSubtasksPage(offset, limit));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksPage(int offset, int limit) {
+        return call(getPage, () -> delegate.getPrioritizedTasksPage(offset, limit));
+    }
+
+    @Override
+    public Collection<Task> getTasksView() {
+        return call(getView, delegate::getTasksView);
+    }
+
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return call(getView, delegate::getEpicsView);
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return call(getView, delegate::getSubtasksView);
+    }
+
+    @Override
+    public Collection<Task> getPrioritizedTasksView() {
+        return call(getView, delegate::getPrioritizedTasksView);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return call(getPrioritizedTasksInWindow, () -> delegate.getPrioritizedTasks(from, to));
+    }
+
+    @Override
+    public List<Task> nextTasks(LocalDateTime after, int limit) {
+        return call(nextTasks, () -> delegate.nextTasks(after, limit));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter) {
+        return call(findFreeSlots, () -> delegate.findFreeSlot(duration, notBefore, notAfter));
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                             int count) {
+        return call(findFreeSlots, () -> delegate.findFreeSlots(duration, notBefore, notAfter, count));
+    }
+
+    @Override
+    public List<Task> getByStatus(TaskStatus status) {
+        return call(getByStatus, () -> delegate.getByStatus(status));
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return call(getByStatus, () -> delegate.getTasksByStatus(status));
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return call(getByStatus, () -> delegate.getEpicsByStatus(status));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return call(getByStatus, () -> delegate.getSubtasksByStatus(status));
+    }
+
+    @Override
+    public Map<TaskStatus, Integer> countByStatus() {
+        return call(countByStatus, delegate::countByStatus);
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        return call(search, () -> delegate.search(query, limit));
+    }
+
+    // Массовые операции передаются исходному менеджеру целиком, чтобы сохранить проверку времени за один проход;
+    // отказы элементов из-за пересечения добавляются к общему счётчику
+    @Override
+    public BulkResult createTasks(Collection<? extends Task> tasks) {
+        return bulk(createTasks, () -> delegate.createTasks(tasks));
+    }
+
+    @Override
+    public BulkResult createSubtasks(Collection<? extends Subtask> subtasks) {
+        return bulk(createSubtasks, () -> delegate.createSubtasks(subtasks));
+    }
+
+    @Override
+    public BulkResult updateSubtasks(Collection<? extends Subtask> subtasks) {
+        return bulk(updateSubtasks, () -> delegate.updateSubtasks(subtasks));
+    }
+
+    @Override
+    public BulkResult deleteByIds(int... ids) {
+        return bulk(deleteByIds, () -> delegate.deleteByIds(ids));
+    }
+
+    private BulkResult bulk(InstrumentedOperation operation, Supplier<BulkResult> call) {
+        BulkResult result = call(operation, call);
+        result.getFailures().values().stream()
+                .filter(error -> error instanceof TaskTimeIntersectionException)
+                .forEach(error -> overlapRejections.increment());
+        return result;
+    }
+
+    private InstrumentedOperation operation(String name) {
+        InstrumentedOperation operation = new InstrumentedOperation(name);
+        operations.put(name, operation);
+        return operation;
+    }
+
+    private void run(InstrumentedOperation operation, Runnable call) {
+        call(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private <T> T call(InstrumentedOperation operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } catch (TaskTimeIntersectionException e) {
+            overlapRejections.increment();
+            throw e;
+        } finally {
+            operation.record(start, failed);
+            publishSizes();
+        }
+    }
+
+    // Размеры берутся из представлений без копирования (InMemoryTaskManager и ConcurrentTaskManager отвечают за O(1))
+    // в потоке, выполнившем операцию, то есть с той же дисциплиной доступа, что и сама операция.
+    // Размер истории ConcurrentTaskManager не ждёт блокировку слива: при конкуренции он приблизительный
+    private void publishSizes() {
+        taskCount = delegate.getTasksView().size();
+        epicCount = delegate.getEpicsView().size();
+        subtaskCount = delegate.getSubtasksView().size();
+        historySize = delegate.getHistorySize();
+    }
+}
@@ -0,0 +1,84 @@
+package main.service;
+
+import main.util.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Снимок метрик на момент опроса: задержки и ошибки по операциям и числовые показатели (счётчики, размеры).
+// toText() выдаёт текстовый формат Prometheus для сборщика метрик
+public class MetricsSnapshot {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, OperationMetrics> operations;
+    private final Map<String, Long> values;
+
+    public MetricsSnapshot(Map<String, OperationMetrics> operations, Map<String, Long> values) {
+        this.operations = Collections.unmodifiableMap(new LinkedHashMap<>(operations));
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    // Метрики операций по имени
+    public Map<String, OperationMetrics> getOperations() {
+        return operations;
+    }
+
+    public OperationMetrics getOperation(String name) {
+        return operations.get(name);
+    }
+
+    // Числовые показатели по имени
+    public Map<String, Long> getValues() {
+        return values;
+    }
+
+    public long getValue(String name) {
+        return values.getOrDefault(name, 0L);
+    }
+
+    // Метод для вывода снимка в текстовом формате Prometheus
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        operations.forEach((name, metrics) -> {
+            LatencyHistogram.Snapshot latency = metrics.getLatency();
+            String label = "{operation=\"" + name + "\"";
+            text.append("taskmanager_operation_count").append(label).append("} ").append(latency.getCount()).append('\n');
+            text.append("taskmanager_operation_errors").append(label).append("} ").append(metrics.getErrors()).append('\n');
+            for (double quantile : QUANTILES) {
+                text.append("taskmanager_operation_latency_nanos").append(label)
+                        .append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(latency.getPercentileNanos(quantile)).append('\n');
+            }
+            text.append("taskmanager_operation_latency_nanos_sum").append(label).append("} ")
+                    .append(latency.getTotalNanos()).append('\n');
+            text.append("taskmanager_operation_latency_nanos_max").append(label).append("} ")
+                    .append(latency.getMaxNanos()).append('\n');
+        });
+        values.forEach((name, value) -> text.append("taskmanager_").append(name).append(' ').append(value).append('\n'));
+        return text.toString();
+    }
+
+    // Метрики одной операции: гистограмма задержек (в ней же число вызовов) и число ошибок
+    public static final class OperationMetrics {
+        private final LatencyHistogram.Snapshot latency;
+        private final long errors;
+
+        public OperationMetrics(LatencyHistogram.Snapshot latency, long errors) {
+            this.latency = latency;
+            this.errors = errors;
+        }
+
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+    }
+}
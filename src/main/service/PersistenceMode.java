@@ -0,0 +1,8 @@
+package main.service;
+
+public enum PersistenceMode {
+    // Каждое изменение полностью перезаписывает файл
+    SNAPSHOT,
+    // Каждое изменение дописывается в журнал, журнал периодически сворачивается в снимок
+    JOURNAL
+}
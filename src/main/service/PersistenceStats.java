@@ -0,0 +1,42 @@
+package main.service;
+
+import main.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Статистика записи и загрузки файла менеджера: число операций, объём в байтах и гистограммы длительности.
+// Запись — полный снимок или дозапись в журнал, загрузка — снимок вместе с журналом
+public class PersistenceStats {
+    private final LatencyHistogram saves = new LatencyHistogram();
+    private final LatencyHistogram loads = new LatencyHistogram();
+    private final LongAdder savedBytes = new LongAdder();
+    private final LongAdder loadedBytes = new LongAdder();
+
+    // Метод для учёта одной записи
+    public void recordSave(long bytes, long nanos) {
+        savedBytes.add(bytes);
+        saves.record(nanos);
+    }
+
+    // Метод для учёта одной загрузки
+    public void recordLoad(long bytes, long nanos) {
+        loadedBytes.add(bytes);
+        loads.record(nanos);
+    }
+
+    public LatencyHistogram.Snapshot getSaves() {
+        return saves.snapshot();
+    }
+
+    public LatencyHistogram.Snapshot getLoads() {
+        return loads.snapshot();
+    }
+
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    public long getLoadedBytes() {
+        return loadedBytes.sum();
+    }
+}
@@ -0,0 +1,8 @@
+package main.service;
+
+public enum SnapshotFormat {
+    // Текстовый формат, используется для импорта и экспорта
+    CSV,
+    // Двоичный формат с фиксированной шириной записей, загружается через отображение файла в память
+    BINARY
+}
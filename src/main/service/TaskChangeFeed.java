@@ -0,0 +1,158 @@
+package main.service;
+
+import main.exception.ChangeFeedOverrunException;
+import main.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Лента изменений менеджера: кольцевой буфер событий с одним писателем и любым числом читателей.
+// Буфер выделяется один раз; писатель кладёт событие в ячейку sequence & mask и публикует его номер
+// volatile-записью, поэтому публикация не берёт блокировок и не ждёт читателей. Каждый читатель идёт
+// по своему курсору в своём темпе; если писатель обогнал его на целый круг, курсор поступает согласно политике
+public class TaskChangeFeed {
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final TaskEvent[] buffer;
+    private final int mask;
+    // Номер следующего события известен только писателю, читатели видят номер последнего опубликованного
+    private long nextSequence;
+    private volatile long published = -1;
+
+    public TaskChangeFeed(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Некорректная ёмкость ленты изменений: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new TaskEvent[size];
+        this.mask = size - 1;
+    }
+
+    // Ёмкость буфера: запрошенная, округлённая вверх до степени двойки
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    // Номер последнего опубликованного события; -1, если событий ещё не было
+    public long getPublishedSequence() {
+        return published;
+    }
+
+    // Метод для подписки на события, опубликованные после подписки
+    public Cursor subscribe(BackpressurePolicy policy) {
+        return new Cursor(policy, published + 1);
+    }
+
+    // Метод для подписки начиная с указанного номера, например чтобы продолжить чтение после перезапуска читателя
+    public Cursor subscribe(BackpressurePolicy policy, long fromSequence) {
+        if (fromSequence < 0) {
+            throw new IllegalArgumentException("Номер события не может быть отрицательным: " + fromSequence);
+        }
+        return new Cursor(policy, fromSequence);
+    }
+
+    // Метод для публикации события; вызывается только из потока, изменяющего менеджер
+    void publish(TaskEventType type, Task before, Task after) {
+        long sequence = nextSequence++;
+        buffer[(int) sequence & mask] = new TaskEvent(sequence, type, before, after);
+        published = sequence;
+    }
+
+    // Курсор одного читателя; не потокобезопасен, каждый поток-читатель заводит свой курсор
+    public final class Cursor {
+        private final BackpressurePolicy policy;
+        private long next;
+        private long missed;
+        private boolean failed;
+
+        private Cursor(BackpressurePolicy policy, long next) {
+            this.policy = policy;
+            this.next = next;
+        }
+
+        // Метод для передачи обработчику не более maxEvents событий по порядку; возвращает их число.
+        // Не ждёт новых событий: если читать нечего, сразу возвращает 0
+        public int poll(Consumer<? super TaskEvent> handler, int maxEvents) {
+            if (maxEvents < 0) {
+                throw new IllegalArgumentException("Размер выборки не может быть отрицательным: " + maxEvents);
+            }
+            checkNotFailed();
+            int count = 0;
+            long available = published;
+            while (count < maxEvents && next <= available) {
+                TaskEvent event = buffer[(int) next & mask];
+                // Ячейка уже перезаписана (или будет вот-вот): читатель отстал на целый круг
+                if (available - next >= buffer.length || event == null || event.getSequence() != next) {
+                    available = published;
+                    overrun(available);
+                    continue;
+                }
+                handler.accept(event);
+                next++;
+                count++;
+            }
+            return count;
+        }
+
+        // Метод для получения не более maxEvents событий списком
+        public List<TaskEvent> poll(int maxEvents) {
+            List<TaskEvent> events = new ArrayList<>();
+            poll(events::add, maxEvents);
+            return events;
+        }
+
+        // Номер следующего события, которое получит читатель
+        public long getSequence() {
+            return next;
+        }
+
+        // Число опубликованных, но ещё не прочитанных событий
+        public long getLag() {
+            return Math.max(0, published + 1 - next);
+        }
+
+        // Число событий, пропущенных из-за отставания
+        public long getMissed() {
+            return missed;
+        }
+
+        public BackpressurePolicy getPolicy() {
+            return policy;
+        }
+
+        private void overrun(long latest) {
+            long skipTo;
+            switch (policy) {
+                case DROP_OLDEST:
+                    // Самое старое событие в буфере может быть перезаписано в любой момент,
+                    // поэтому курсор встаёт на него и проверка номера в ячейке повторяется
+                    skipTo = Math.max(next + 1, latest - buffer.length + 1);
+                    break;
+                case SKIP_TO_LATEST:
+                    skipTo = latest + 1;
+                    break;
+                default:
+                    failed = true;
+                    throw overrunException();
+            }
+            missed += skipTo - next;
+            next = skipTo;
+        }
+
+        private void checkNotFailed() {
+            if (failed) {
+                throw overrunException();
+            }
+        }
+
+        private ChangeFeedOverrunException overrunException() {
+            return new ChangeFeedOverrunException("Читатель отстал от ленты изменений более чем на "
+                    + buffer.length + " событий, следующее событие: " + next);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package main.service;
+
+import main.model.Task;
+import main.model.TaskType;
+
+// Событие ленты изменений: номер, вид изменения, тип и ID задачи, снимки задачи до и после изменения.
+// При создании before == null, при удалении after == null; before == null и у обновления объектом,
+// изменённым на месте. Снимки — копии на момент изменения, их можно читать из любого потока, менеджер их не меняет.
+// Снимки эпика в событии EPIC_STATUS_CHANGED не содержат ID подзадач
+public class TaskEvent {
+    private final long sequence;
+    private final TaskEventType type;
+    private final Task before;
+    private final Task after;
+
+    TaskEvent(long sequence, TaskEventType type, Task before, Task after) {
+        this.sequence = sequence;
+        this.type = type;
+        this.before = before;
+        this.after = after;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public TaskEventType getType() {
+        return type;
+    }
+
+    public TaskType getTaskType() {
+        return (after != null ? after : before).getType();
+    }
+
+    public int getTaskId() {
+        return (after != null ? after : before).getId();
+    }
+
+    public Task getBefore() {
+        return before;
+    }
+
+    public Task getAfter() {
+        return after;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + " " + type + " " + getTaskType() + " " + getTaskId();
+    }
+}
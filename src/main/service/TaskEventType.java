@@ -0,0 +1,10 @@
+package main.service;
+
+// Вид изменения в ленте событий менеджера
+public enum TaskEventType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    // Статус эпика изменился в результате пересчёта по подзадачам
+    EPIC_STATUS_CHANGED
+}
@@ -0,0 +1,265 @@
+package main.service;
+
+import main.util.CsvReader;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Журнал изменений: каждая мутация дописывается в конец файла одной строкой.
+// Перед свёрткой в снимок активный файл "запечатывается" (переименовывается), а запись продолжается в новый.
+// Каждый файл начинается записью с номером поколения: снимок хранит номер последнего свёрнутого поколения,
+// и файлы, уже вошедшие в снимок, при загрузке пропускаются
+public class TaskJournal implements Closeable {
+    private static final String GENERATION = "G";
+
+    private final Path path;
+    private final Path sealedPath;
+    private OutputStream out;
+    private long size;
+    private long generation;
+
+    public TaskJournal(Path path) {
+        this.path = path;
+        this.sealedPath = path.resolveSibling(path.getFileName() + ".sealed");
+    }
+
+    // Метод для открытия журнала на дозапись. Оборванная при сбое последняя запись отрезается;
+    // новый файл получает поколение nextGeneration, существующий сохраняет своё
+    public void open(long nextGeneration) {
+        try {
+            long existing = Files.exists(path) ? truncateTornTail(path) : 0;
+            generation = existing > 0 ? generationOf(path) : nextGeneration;
+            out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            size = existing;
+            if (existing == 0) {
+                append(GENERATION + "," + generation);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка открытия журнала: " + path, e);
+        }
+    }
+
+    // Метод для добавления записи в конец журнала
+    public void append(String record) {
+        byte[] bytes = (record + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            out.write(bytes);
+            size += bytes.length;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал: " + path, e);
+        }
+    }
+
+    // Размер активного файла журнала в байтах
+    public long size() {
+        return size;
+    }
+
+    // Поколение активного файла
+    public long getGeneration() {
+        return generation;
+    }
+
+    // Общий размер файлов журнала на диске: запечатанного и активного
+    public long sizeOnDisk() {
+        return path.toFile().length() + sealedPath.toFile().length();
+    }
+
+    // Метод для запечатывания активного файла; возвращает false, если предыдущий ещё не свёрнут
+    public boolean seal() {
+        if (hasSealed()) {
+            return false;
+        }
+        try {
+            out.close();
+            Files.move(path, sealedPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка запечатывания журнала: " + path, e);
+        }
+        open(generation + 1);
+        return true;
+    }
+
+    public boolean hasSealed() {
+        return Files.exists(sealedPath);
+    }
+
+    public Path getSealedPath() {
+        return sealedPath;
+    }
+
+    // Метод для удаления свёрнутого в снимок файла
+    public void deleteSealed() {
+        try {
+            Files.deleteIfExists(sealedPath);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка удаления журнала: " + sealedPath, e);
+        }
+    }
+
+    // Метод для очистки журнала после записи полного снимка; запись продолжается в поколение nextGeneration
+    public void reset(long nextGeneration) {
+        delete();
+        open(nextGeneration);
+    }
+
+    // Метод для закрытия и удаления всех файлов журнала
+    public void delete() {
+        close();
+        try {
+            Files.deleteIfExists(sealedPath);
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка удаления журнала: " + path, e);
+        }
+    }
+
+    // Метод проверки наличия файлов журнала
+    public boolean exists() {
+        return Files.exists(path) || Files.exists(sealedPath);
+    }
+
+    // Метод для чтения записей журнала, ещё не свёрнутых в снимок: сначала запечатанного файла, затем активного.
+    // Возвращает поколение последнего прочитанного файла (или foldedGeneration, если читать было нечего)
+    public long forEachRecord(long foldedGeneration, RecordConsumer consumer) {
+        long applied = Math.max(foldedGeneration, read(sealedPath, foldedGeneration, consumer));
+        return Math.max(applied, read(path, foldedGeneration, consumer));
+    }
+
+    // Метод для чтения записей одного файла журнала, если его поколение новее foldedGeneration.
+    // Записи — строки CSV, поля в кавычках могут содержать переводы строк, поэтому файл читается через CsvReader.
+    // Оборванная последняя запись не читается. Возвращает поколение файла или 0, если файл пропущен
+    public static long read(Path file, long foldedGeneration, RecordConsumer consumer) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (CsvReader reader = new CsvReader(new InputStreamReader(new LimitedInputStream(
+                Files.newInputStream(file), completeLength(file)), StandardCharsets.UTF_8))) {
+            long fileGeneration = readGeneration(reader);
+            if (fileGeneration <= foldedGeneration) {
+                return 0;
+            }
+            while (reader.nextRecord()) {
+                if (!reader.isBlankRecord()) {
+                    consumer.accept(reader);
+                }
+            }
+            return fileGeneration;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала: " + file, e);
+        }
+    }
+
+    // Метод для чтения поколения из первой записи файла; 0 — пустой файл
+    private static long generationOf(Path file) throws IOException {
+        try (CsvReader reader = new CsvReader(new InputStreamReader(Files.newInputStream(file),
+                StandardCharsets.UTF_8))) {
+            return readGeneration(reader);
+        }
+    }
+
+    private static long readGeneration(CsvReader reader) throws IOException {
+        if (!reader.nextRecord()) {
+            return 0;
+        }
+        if (reader.isBlankRecord() || !reader.nextField() || !reader.fieldEquals(GENERATION)) {
+            throw reader.malformed("нет поколения журнала");
+        }
+        reader.requireField("generation");
+        return reader.fieldAsLong();
+    }
+
+    // Метод для отрезания оборванной последней записи; возвращает длину файла после этого
+    private static long truncateTornTail(Path file) throws IOException {
+        long complete = completeLength(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > complete) {
+                channel.truncate(complete);
+                channel.force(true);
+            }
+        }
+        return complete;
+    }
+
+    // Длина файла до конца последней целой записи — перевода строки вне кавычек.
+    // Кавычки в CSV встречаются только в полях в кавычках, удвоенная кавычка переключает состояние дважды
+    private static long completeLength(Path file) throws IOException {
+        long position = 0;
+        long complete = 0;
+        boolean quoted = false;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    complete = position;
+                }
+            }
+        }
+        return complete;
+    }
+
+    // Поток, читающий не больше заданного числа байт
+    private static final class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(bytes, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+
+    // Обработчик одной записи журнала: поля читаются из CsvReader
+    public interface RecordConsumer {
+        void accept(CsvReader record) throws IOException;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка закрытия журнала: " + path, e);
+        }
+    }
+}
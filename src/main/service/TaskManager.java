@@ -3,8 +3,22 @@ package main.service;
 import main.model.Epic;
 import main.model.Subtask;
 import main.model.Task;
+import main.model.TaskStatus;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface TaskManager {
     // Метод для создания обычной задачи
@@ -25,6 +39,9 @@ public interface TaskManager {
     // Метод для получения подзадачи по ID
     Subtask getSubtaskById(int id);
 
+    // Метод для поиска задачи любого типа по ID без записи в историю; null, если задачи нет
+    Task findTask(int id);
+
     // Обновление статуса задачи
     void updateTask(Task updatedTask);
 
@@ -67,9 +84,219 @@ public interface TaskManager {
     // Метод для получения истории просмотров задач
     List<Task> getHistory();
 
+    // Метод для получения размера истории без копирования списка
+    default int getHistorySize() {
+        return getHistory().size();
+    }
+
     // Метод для обновления статуса эпика
     void updateEpicStatus(Epic epic);
 
     // Метод для получения списка задач в порядке приоритета
     List<Task> getPrioritizedTasks();
+
+    // Метод для выполнения нескольких изменений одной пачкой с откатом при ошибке
+    void batch(Consumer<TaskManager> operations);
+
+    // Метод для получения задач, пересекающихся по времени с окном [from, to], в порядке приоритета
+    default List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return streamPrioritizedTasks()
+                .filter(task -> !task.getStartTime().isAfter(to) && !task.getEndTime().isBefore(from))
+                .collect(Collectors.toList());
+    }
+
+    // Метод для получения не более limit ближайших задач, начинающихся строго после момента after
+    default List<Task> nextTasks(LocalDateTime after, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер выборки не может быть отрицательным: " + limit);
+        }
+        return streamPrioritizedTasks()
+                .filter(task -> task.getStartTime().isAfter(after))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // Методы для потокового обхода задач без копирования в список.
+    // Реализации по умолчанию строятся на копиях, менеджеры переопределяют их обходом своих коллекций
+    default Stream<Task> streamTasks() {
+        return getAllTasks().stream();
+    }
+
+    default Stream<Epic> streamEpics() {
+        return getAllEpics().stream();
+    }
+
+    default Stream<Subtask> streamSubtasks() {
+        return getAllSubtasks().stream();
+    }
+
+    default Stream<Task> streamPrioritizedTasks() {
+        return getPrioritizedTasks().stream();
+    }
+
+    // Методы для получения страницы: не более limit задач, начиная с позиции offset
+    default List<Task> getTasksPage(int offset, int limit) {
+        return page(streamTasks(), offset, limit);
+    }
+
+    default List<Epic> getEpicsPage(int offset, int limit) {
+        return page(streamEpics(), offset, limit);
+    }
+
+    default List<Subtask> getSubtasksPage(int offset, int limit) {
+        return page(streamSubtasks(), offset, limit);
+    }
+
+    default List<Task> getPrioritizedTasksPage(int offset, int limit) {
+        return page(streamPrioritizedTasks(), offset, limit);
+    }
+
+    // Методы для получения представлений только для чтения. Менеджер, где это безопасно, возвращает живое
+    // представление своих коллекций (изменения менеджера сразу видны), иначе — неизменяемую копию
+    default Collection<Task> getTasksView() {
+        return Collections.unmodifiableList(getAllTasks());
+    }
+
+    default Collection<Epic> getEpicsView() {
+        return Collections.unmodifiableList(getAllEpics());
+    }
+
+    default Collection<Subtask> getSubtasksView() {
+        return Collections.unmodifiableList(getAllSubtasks());
+    }
+
+    default Collection<Task> getPrioritizedTasksView() {
+        return Collections.unmodifiableList(getPrioritizedTasks());
+    }
+
+    // Метод для поиска самого раннего свободного интервала длины duration в окне [notBefore, notAfter];
+    // возвращает время его начала или null, если места нет
+    default LocalDateTime findFreeSlot(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter) {
+        List<LocalDateTime> slots = findFreeSlots(duration, notBefore, notAfter, 1);
+        return slots.isEmpty() ? null : slots.get(0);
+    }
+
+    // Метод для поиска первых count непересекающихся свободных интервалов длины duration в окне [notBefore, notAfter].
+    // Реализация по умолчанию строит индекс по копии расписания, менеджеры ищут по своему индексу
+    default List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                              int count) {
+        TaskTimeIndex index = new TaskTimeIndex();
+        getPrioritizedTasks().forEach(index::add);
+        return index.findFreeSlots(duration, notBefore, notAfter, count);
+    }
+
+    // Методы для выборки задач по статусу и подсчёта задач каждого статуса.
+    // Реализации по умолчанию фильтруют все задачи, менеджеры отвечают из вторичного индекса
+    default List<Task> getByStatus(TaskStatus status) {
+        return Stream.of(streamTasks(), streamEpics(), streamSubtasks())
+                .flatMap(items -> items)
+                .filter(task -> task.getStatus() == status)
+                .collect(Collectors.toList());
+    }
+
+    default List<Task> getTasksByStatus(TaskStatus status) {
+        return streamTasks().filter(task -> task.getStatus() == status).collect(Collectors.toList());
+    }
+
+    default List<Epic> getEpicsByStatus(TaskStatus status) {
+        return streamEpics().filter(epic -> epic.getStatus() == status).collect(Collectors.toList());
+    }
+
+    default List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return streamSubtasks().filter(subtask -> subtask.getStatus() == status).collect(Collectors.toList());
+    }
+
+    default Map<TaskStatus, Integer> countByStatus() {
+        Map<TaskStatus, Integer> counts = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            counts.put(status, 0);
+        }
+        Stream.of(streamTasks(), streamEpics(), streamSubtasks())
+                .flatMap(items -> items)
+                .filter(task -> task.getStatus() != null)
+                .forEach(task -> counts.merge(task.getStatus(), 1, Integer::sum));
+        return counts;
+    }
+
+    // Метод для полнотекстового поиска задач всех типов по названию и описанию: задача подходит, если для каждого
+    // слова запроса в ней есть такое слово или слово с таким началом; не более limit задач по убыванию релевантности.
+    // Менеджеры ищут по своему индексу, который поддерживают при изменениях
+    List<Task> search(String query, int limit);
+
+    // Массовые операции: каждый элемент применяется или отклоняется по отдельности (пересечение по времени,
+    // нет эпика, нет задачи), отказ элемента попадает в результат и не отменяет остальные.
+    // Реализации по умолчанию выполняют одиночные операции одной пачкой, менеджеры проверяют время за один проход
+    default BulkResult createTasks(Collection<? extends Task> tasks) {
+        return applyEach(tasks, TaskManager::createTask);
+    }
+
+    default BulkResult createSubtasks(Collection<? extends Subtask> subtasks) {
+        return applyEach(subtasks, TaskManager::createSubtask);
+    }
+
+    default BulkResult updateSubtasks(Collection<? extends Subtask> subtasks) {
+        Set<Integer> existing = streamSubtasks().map(Task::getId).collect(Collectors.toSet());
+        return applyEach(subtasks, (manager, subtask) -> {
+            if (!existing.contains(subtask.getId())) {
+                throw new NoSuchElementException("Подзадача не найдена: " + subtask.getId());
+            }
+            manager.updateSubtask(subtask);
+        });
+    }
+
+    // Метод для удаления задач любого типа по ID одной пачкой; неизвестный ID — отказ элемента
+    default BulkResult deleteByIds(int... ids) {
+        Map<Integer, Task> existing = new HashMap<>();
+        Stream.of(streamTasks(), streamEpics(), streamSubtasks())
+                .flatMap(items -> items)
+                .forEach(task -> existing.put(task.getId(), task));
+        BulkResult result = new BulkResult(ids.length);
+        batch(manager -> {
+            for (int i = 0; i < ids.length; i++) {
+                Task task = existing.remove(ids[i]);
+                if (task == null) {
+                    result.fail(i, ids[i], new NoSuchElementException("Задача не найдена: " + ids[i]));
+                } else if (task instanceof Epic) {
+                    manager.getSubtasksForEpic(task.getId()).forEach(subtask -> existing.remove(subtask.getId()));
+                    manager.deleteEpicById(task.getId());
+                    result.succeed(i, task);
+                } else if (task instanceof Subtask) {
+                    manager.deleteSubtaskById(task.getId());
+                    result.succeed(i, task);
+                } else {
+                    manager.deleteTaskById(task.getId());
+                    result.succeed(i, task);
+                }
+            }
+        });
+        return result;
+    }
+
+    private <T extends Task> BulkResult applyEach(Collection<? extends T> items, BiConsumer<TaskManager, T> operation) {
+        BulkResult result = new BulkResult(items.size());
+        batch(manager -> {
+            int index = 0;
+            for (T item : items) {
+                try {
+                    if (item == null) {
+                        throw new IllegalArgumentException("Задача не может быть null");
+                    }
+                    operation.accept(manager, item);
+                    result.succeed(index, item);
+                } catch (RuntimeException e) {
+                    result.fail(index, item == null ? 0 : item.getId(), e);
+                }
+                index++;
+            }
+        });
+        return result;
+    }
+
+    private static <T> List<T> page(Stream<T> items, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Смещение и размер страницы не могут быть отрицательными: "
+                    + offset + ", " + limit);
+        }
+        return items.skip(offset).limit(limit).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,272 @@
+package main.service;
+
+import main.model.Task;
+import main.util.IntOrderedSet;
+import main.util.TextTokenizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+// Инвертированный индекс по словам названия и описания задач.
+// Словарь упорядочен, поэтому слова с общим префиксом лежат в нём подряд; для каждого слова хранится множество ID задач.
+// Для каждой задачи запоминаются её слова: по ним задача снимается с учёта при замене и удалении,
+// а у кандидатов проверяются остальные слова запроса
+public class TaskSearchIndex {
+    // Веса совпадения слова запроса: точное слово выше префикса, название выше описания
+    private static final int NAME_EXACT = 4;
+    private static final int NAME_PREFIX = 3;
+    private static final int DESCRIPTION_EXACT = 2;
+    private static final int DESCRIPTION_PREFIX = 1;
+    // Слова запроса с небольшим числом подходящих слов словаря проверяются по спискам ID без обращения к задаче
+    private static final int FILTER_POSTINGS = 8;
+    private static final int[] NO_RESULTS = new int[0];
+
+    private final TreeMap<String, Posting> postings = new TreeMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    // Метод для добавления или замены слов задачи
+    public void add(int id, Task task) {
+        remove(id);
+        String[] name = index(id, TextTokenizer.tokenize(task.getName()));
+        String[] description = index(id, TextTokenizer.tokenize(task.getDescription()));
+        if (name.length > 0 || description.length > 0) {
+            documents.put(id, new Document(name, description));
+        }
+    }
+
+    // Метод для снятия задачи с учёта
+    public void remove(int id) {
+        Document document = documents.remove(id);
+        if (document != null) {
+            unindex(id, document.name);
+            unindex(id, document.description);
+        }
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    // Метод для поиска задач, содержащих все слова запроса (каждое — как слово или начало слова).
+    // Кандидаты берутся по самому редкому слову запроса; слова, которым соответствует не больше FILTER_POSTINGS
+    // слов словаря, проверяются по их спискам ID, остальные — по словам кандидата при подсчёте оценки.
+    // Лучшие limit результатов отбираются кучей. Возвращает ID по убыванию оценки, при равной оценке — по возрастанию ID
+    public int[] search(String query, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Размер выборки не может быть отрицательным: " + limit);
+        }
+        String[] tokens = TextTokenizer.tokenize(query);
+        if (tokens.length == 0 || limit == 0) {
+            return NO_RESULTS;
+        }
+        List<NavigableMap<String, Posting>> ranges = new ArrayList<>(tokens.length);
+        int rarest = -1;
+        long rarestSize = Long.MAX_VALUE;
+        for (int i = 0; i < tokens.length; i++) {
+            NavigableMap<String, Posting> range = prefixRange(tokens[i]);
+            ranges.add(range);
+            long size = 0;
+            for (Posting posting : range.values()) {
+                size += posting.ids.size();
+                if (size >= rarestSize) {
+                    break;
+                }
+            }
+            if (size == 0) {
+                return NO_RESULTS;
+            }
+            if (size < rarestSize) {
+                rarest = i;
+                rarestSize = size;
+            }
+        }
+        List<Posting[]> filters = new ArrayList<>();
+        for (int i = 0; i < tokens.length; i++) {
+            Posting[] filter = i == rarest ? null : smallRange(ranges.get(i));
+            if (filter != null) {
+                filters.add(filter);
+            }
+        }
+
+        // Наибольшая возможная оценка: слово без точного совпадения в словаре даёт не больше веса префикса
+        int maxScore = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            maxScore += ranges.get(i).containsKey(tokens[i]) ? NAME_EXACT : NAME_PREFIX;
+        }
+        TopMatches best = new TopMatches(limit, maxScore);
+        NavigableMap<String, Posting> candidates = ranges.get(rarest);
+        IntOrderedSet seen = candidates.size() > 1 ? new IntOrderedSet() : null;
+        for (Posting posting : candidates.values()) {
+            posting.ids.forEach(id -> {
+                if (!best.canAccept(id) || seen != null && !seen.add(id) || !containedInAll(filters, id)) {
+                    return;
+                }
+                int score = documents.get(id).score(tokens);
+                if (score > 0) {
+                    best.offer(id, score);
+                }
+            });
+        }
+        return best.toArray();
+    }
+
+    // Метод для получения слов диапазона, если их не больше FILTER_POSTINGS; иначе null
+    private static Posting[] smallRange(NavigableMap<String, Posting> range) {
+        List<Posting> result = new ArrayList<>(FILTER_POSTINGS);
+        for (Posting posting : range.values()) {
+            if (result.size() == FILTER_POSTINGS) {
+                return null;
+            }
+            result.add(posting);
+        }
+        return result.toArray(new Posting[0]);
+    }
+
+    private static boolean containedInAll(List<Posting[]> filters, int id) {
+        for (Posting[] filter : filters) {
+            boolean contained = false;
+            for (Posting posting : filter) {
+                if (posting.ids.contains(id)) {
+                    contained = true;
+                    break;
+                }
+            }
+            if (!contained) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private NavigableMap<String, Posting> prefixRange(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    // Метод для добавления ID в списки слов; слова задачи заменяются экземплярами из словаря
+    private String[] index(int id, String[] tokens) {
+        for (int i = 0; i < tokens.length; i++) {
+            Posting posting = postings.computeIfAbsent(tokens[i], Posting::new);
+            posting.ids.add(id);
+            tokens[i] = posting.term;
+        }
+        return tokens;
+    }
+
+    private void unindex(int id, String[] terms) {
+        for (String term : terms) {
+            Posting posting = postings.get(term);
+            if (posting != null && posting.ids.remove(id) && posting.ids.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static final class Posting {
+        private final String term;
+        private final IntOrderedSet ids = new IntOrderedSet();
+
+        private Posting(String term) {
+            this.term = term;
+        }
+    }
+
+    private static final class Document {
+        private final String[] name;
+        private final String[] description;
+
+        private Document(String[] name, String[] description) {
+            this.name = name;
+            this.description = description;
+        }
+
+        // Сумма весов лучших совпадений по каждому слову запроса; 0, если какое-то слово не найдено
+        private int score(String[] tokens) {
+            int total = 0;
+            for (String token : tokens) {
+                int weight = Math.max(match(name, token, NAME_EXACT, NAME_PREFIX),
+                        match(description, token, DESCRIPTION_EXACT, DESCRIPTION_PREFIX));
+                if (weight == 0) {
+                    return 0;
+                }
+                total += weight;
+            }
+            return total;
+        }
+
+        private static int match(String[] terms, String token, int exact, int prefix) {
+            int weight = 0;
+            for (String term : terms) {
+                if (term.equals(token)) {
+                    return exact;
+                }
+                if (term.startsWith(token)) {
+                    weight = prefix;
+                }
+            }
+            return weight;
+        }
+    }
+
+    // Отбор лучших результатов: голова кучи — худший из отобранных (меньшая оценка, при равной — больший ID)
+    private static final class TopMatches {
+        private final int limit;
+        private final int maxScore;
+        private final PriorityQueue<Match> heap;
+
+        private TopMatches(int limit, int maxScore) {
+            this.limit = limit;
+            this.maxScore = maxScore;
+            this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, Comparator.<Match>comparingInt(match -> match.score)
+                    .thenComparing(Comparator.<Match>comparingInt(match -> match.id).reversed()));
+        }
+
+        // Кандидат не попадёт в результат, если отобрано limit задач с наибольшей возможной оценкой и меньшими ID
+        private boolean canAccept(int id) {
+            if (heap.size() < limit) {
+                return true;
+            }
+            Match worst = heap.peek();
+            return worst.score < maxScore || id < worst.id;
+        }
+
+        private void offer(int id, int score) {
+            if (heap.size() == limit) {
+                Match worst = heap.peek();
+                if (score < worst.score || score == worst.score && id > worst.id) {
+                    return;
+                }
+                heap.poll();
+            }
+            heap.offer(new Match(id, score));
+        }
+
+        private int[] toArray() {
+            int[] result = new int[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = heap.poll().id;
+            }
+            return result;
+        }
+    }
+
+    private static final class Match {
+        private final int id;
+        private final int score;
+
+        private Match(int id, int score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
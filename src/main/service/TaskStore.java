@@ -0,0 +1,358 @@
+package main.service;
+
+import main.model.Task;
+import main.model.TaskStatus;
+import main.model.TaskType;
+import main.util.IntOrderedSet;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+
+// Единое хранилище задач всех типов по ID.
+// Хеш-таблица с открытой адресацией и ключом int хранит задачу и её тип, поэтому поиск по ID без учёта типа
+// выполняется за одно обращение. Для каждого типа ведётся множество ID в порядке добавления,
+// поверх которого построены представления по типам.
+// Вторичный индекс по типу и статусу хранит множества ID для каждой пары и статус, под которым задача учтена:
+// статус берётся при добавлении или замене, а после изменения статуса на месте (пересчёт эпика) — через reindex.
+// Слова названия и описания учитываются в полнотекстовом индексе при каждом добавлении, замене и удалении
+public class TaskStore {
+    private static final int MIN_TABLE_SIZE = 16;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    // Задача без статуса не попадает в индекс по статусу
+    private static final byte NO_STATUS = -1;
+
+    private int[] keys;
+    private Task[] values;
+    private byte[] types;
+    private byte[] statuses;
+    private int mask;
+    private int size;
+    private final IntOrderedSet[] idsByType = new IntOrderedSet[TYPES.length];
+    private final IntOrderedSet[][] idsByTypeAndStatus = new IntOrderedSet[TYPES.length][STATUSES.length];
+    private final TaskSearchIndex searchIndex = new TaskSearchIndex();
+
+    public TaskStore() {
+        allocate(MIN_TABLE_SIZE);
+        for (int i = 0; i < idsByType.length; i++) {
+            idsByType[i] = new IntOrderedSet();
+            for (int j = 0; j < STATUSES.length; j++) {
+                idsByTypeAndStatus[i][j] = new IntOrderedSet();
+            }
+        }
+    }
+
+    // Метод для получения задачи любого типа по ID
+    public Task get(int id) {
+        int slot = find(id);
+        return slot < 0 ? null : values[slot];
+    }
+
+    // Метод для получения типа задачи по ID; null, если задачи нет
+    public TaskType typeOf(int id) {
+        int slot = find(id);
+        return slot < 0 ? null : TYPES[types[slot]];
+    }
+
+    public boolean contains(int id) {
+        return find(id) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Представление хранилища, содержащее только задачи указанного типа
+    public <T extends Task> View<T> view(TaskType type) {
+        return new View<>(type);
+    }
+
+    // Метод для добавления или замены задачи; возвращает предыдущую задачу с этим ID любого типа
+    public Task put(int id, Task task, TaskType type) {
+        int slot = find(id);
+        if (slot >= 0) {
+            Task previous = values[slot];
+            TaskType previousType = TYPES[types[slot]];
+            unindexStatus(id, types[slot], statuses[slot]);
+            values[slot] = task;
+            types[slot] = (byte) type.ordinal();
+            statuses[slot] = statusOf(task);
+            indexStatus(id, types[slot], statuses[slot]);
+            searchIndex.add(id, task);
+            if (previousType != type) {
+                idsByType[previousType.ordinal()].remove(id);
+                idsByType[type.ordinal()].add(id);
+            }
+            return previous;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        byte status = statusOf(task);
+        insert(id, task, (byte) type.ordinal(), status);
+        idsByType[type.ordinal()].add(id);
+        indexStatus(id, (byte) type.ordinal(), status);
+        searchIndex.add(id, task);
+        size++;
+        return null;
+    }
+
+    // Метод для удаления задачи любого типа по ID
+    public Task remove(int id) {
+        int slot = find(id);
+        if (slot < 0) {
+            return null;
+        }
+        Task removed = values[slot];
+        idsByType[types[slot]].remove(id);
+        unindexStatus(id, types[slot], statuses[slot]);
+        searchIndex.remove(id);
+        deleteSlot(slot);
+        size--;
+        return removed;
+    }
+
+    // Метод для переучёта задачи в индексе по статусу после изменения статуса на месте
+    public void reindex(int id) {
+        int slot = find(id);
+        if (slot < 0) {
+            return;
+        }
+        byte status = statusOf(values[slot]);
+        if (status != statuses[slot]) {
+            unindexStatus(id, types[slot], statuses[slot]);
+            statuses[slot] = status;
+            indexStatus(id, types[slot], status);
+        }
+    }
+
+    // Метод для получения задач всех типов с указанным статусом за O(k): сначала задачи, затем эпики и подзадачи
+    public List<Task> getByStatus(TaskStatus status) {
+        int count = count(status);
+        List<Task> result = new ArrayList<>(count);
+        for (int type = 0; type < TYPES.length; type++) {
+            collect(idsByTypeAndStatus[type][status.ordinal()], result);
+        }
+        return result;
+    }
+
+    // Метод для получения задач указанного типа и статуса за O(k) в порядке учёта
+    public <T extends Task> List<T> getByStatus(TaskType type, TaskStatus status) {
+        IntOrderedSet ids = idsByTypeAndStatus[type.ordinal()][status.ordinal()];
+        List<T> result = new ArrayList<>(ids.size());
+        collect(ids, result);
+        return result;
+    }
+
+    // Методы для подсчёта задач по статусу за O(1)
+    public int count(TaskType type, TaskStatus status) {
+        return idsByTypeAndStatus[type.ordinal()][status.ordinal()].size();
+    }
+
+    public int count(TaskStatus status) {
+        int count = 0;
+        for (int type = 0; type < TYPES.length; type++) {
+            count += idsByTypeAndStatus[type][status.ordinal()].size();
+        }
+        return count;
+    }
+
+    // Метод для получения числа задач каждого статуса
+    public Map<TaskStatus, Integer> countByStatus() {
+        Map<TaskStatus, Integer> result = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : STATUSES) {
+            result.put(status, count(status));
+        }
+        return result;
+    }
+
+    // Метод для полнотекстового поиска задач всех типов по названию и описанию
+    public List<Task> search(String query, int limit) {
+        int[] ids = searchIndex.search(query, limit);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(get(id));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> void collect(IntOrderedSet ids, List<T> result) {
+        ids.forEach(id -> result.add((T) values[find(id)]));
+    }
+
+    private static byte statusOf(Task task) {
+        return task.getStatus() == null ? NO_STATUS : (byte) task.getStatus().ordinal();
+    }
+
+    private void indexStatus(int id, byte type, byte status) {
+        if (status != NO_STATUS) {
+            idsByTypeAndStatus[type][status].add(id);
+        }
+    }
+
+    private void unindexStatus(int id, byte type, byte status) {
+        if (status != NO_STATUS) {
+            idsByTypeAndStatus[type][status].remove(id);
+        }
+    }
+
+    private int bucket(int id) {
+        // Сдвиг без подмешивания оставлял бы только 16 бит хеша, что плохо для таблиц на миллионы задач
+        int hash = id * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private int find(int id) {
+        for (int i = bucket(id); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int id, Task task, byte type, byte status) {
+        int i = bucket(id);
+        while (values[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        values[i] = task;
+        types[i] = type;
+        statuses[i] = status;
+    }
+
+    // Удаление записи со сдвигом следующих записей цепочки назад, без «надгробий»
+    private void deleteSlot(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int home = bucket(keys[j]);
+            boolean stays = i < j ? home > i && home <= j : home > i || home <= j;
+            if (!stays) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                types[i] = types[j];
+                statuses[i] = statuses[j];
+                i = j;
+            }
+        }
+        values[i] = null;
+    }
+
+    private void rehash(int tableSize) {
+        int[] oldKeys = keys;
+        Task[] oldValues = values;
+        byte[] oldTypes = types;
+        byte[] oldStatuses = statuses;
+        allocate(tableSize);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                insert(oldKeys[i], oldValues[i], oldTypes[i], oldStatuses[i]);
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new int[tableSize];
+        values = new Task[tableSize];
+        types = new byte[tableSize];
+        statuses = new byte[tableSize];
+        mask = tableSize - 1;
+    }
+
+    // Представление задач одного типа: чтение и изменение идут напрямую в общее хранилище
+    public final class View<T extends Task> {
+        private final TaskType type;
+        private final IntOrderedSet ids;
+        private final Collection<T> values = new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                PrimitiveIterator.OfInt idIterator = ids.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return idIterator.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return get(idIterator.nextInt());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ids.size();
+            }
+        };
+
+        private View(TaskType type) {
+            this.type = type;
+            this.ids = idsByType[type.ordinal()];
+        }
+
+        // Метод для получения задачи этого типа по ID
+        @SuppressWarnings("unchecked")
+        public T get(int id) {
+            int slot = find(id);
+            return slot >= 0 && types[slot] == type.ordinal() ? (T) TaskStore.this.values[slot] : null;
+        }
+
+        public boolean containsKey(int id) {
+            int slot = find(id);
+            return slot >= 0 && types[slot] == type.ordinal();
+        }
+
+        // Метод для добавления или замены задачи; возвращает предыдущую задачу этого типа.
+        // ID, занятый задачей другого типа, не перезаписывается: иначе запись другого типа пропала бы из хранилища
+        @SuppressWarnings("unchecked")
+        public T put(int id, T task) {
+            TaskType current = typeOf(id);
+            if (current != null && current != type) {
+                throw new IllegalArgumentException("ID " + id + " занят задачей другого типа: " + current);
+            }
+            return (T) TaskStore.this.put(id, task, type);
+        }
+
+        // Метод для удаления задачи этого типа по ID
+        public T remove(int id) {
+            T task = get(id);
+            if (task != null) {
+                TaskStore.this.remove(id);
+            }
+            return task;
+        }
+
+        // Метод для удаления всех задач этого типа
+        public void clear() {
+            for (int id : ids.toArray()) {
+                TaskStore.this.remove(id);
+            }
+        }
+
+        // Живое представление задач этого типа в порядке добавления
+        public Collection<T> values() {
+            return values;
+        }
+
+        public int size() {
+            return ids.size();
+        }
+
+        public boolean isEmpty() {
+            return ids.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package main.service;
+
+import main.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Индекс задач по времени: упорядочен по времени начала и отвечает на вопрос о пересечении за O(log n).
+// Интервалы в индексе не пересекаются (это гарантирует проверка перед добавлением), поэтому достаточно
+// посмотреть на ближайшего соседа слева от конца проверяемого интервала.
+// Интервалы хранятся примитивами задачи (секунды и наносекунды) и сравниваются через Task.compareTime;
+// LocalDateTime создаётся только на границе с внешним кодом. Задачи с одинаковым временем начала
+// упорядочиваются по ID и хранятся обе
+public class TaskTimeIndex {
+    // Границы интервалов включительные, поэтому свободный слот начинается в первый момент после окончания
+    // занятого интервала — через наименьший шаг LocalDateTime, одну наносекунду
+    private static final Duration SLOT_STEP = Duration.ofNanos(1);
+
+    private final NavigableSet<Slot> byStart = new TreeSet<>(Slot::compareTo);
+    private final Map<Integer, Slot> byId = new HashMap<>();
+    // Живое представление задач в порядке времени начала, только для чтения
+    private final Collection<Task> tasks = new AbstractCollection<>() {
+        @Override
+        public Iterator<Task> iterator() {
+            Iterator<Slot> slots = byStart.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return slots.hasNext();
+                }
+
+                @Override
+                public Task next() {
+                    return slots.next().task;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return byStart.size();
+        }
+    };
+
+    // Метод для добавления задачи в индекс (задачи без времени начала не индексируются)
+    public void add(Task task) {
+        remove(task.getId());
+        if (!task.hasStartTime()) {
+            return;
+        }
+        Slot slot = new Slot(task, task.getId(), task.getStartEpochSecond(), task.getStartNano(),
+                task.getEndEpochSecond(), task.getEndNano());
+        byStart.add(slot);
+        byId.put(task.getId(), slot);
+    }
+
+    // Метод для удаления задачи из индекса по ID.
+    // Удаляем по сохранённому интервалу, а не по текущему времени задачи: объект мог быть изменён снаружи
+    public void remove(int id) {
+        Slot slot = byId.remove(id);
+        if (slot != null) {
+            byStart.remove(slot);
+        }
+    }
+
+    // Метод проверки пересечения интервала задачи с любой другой задачей индекса (кроме неё самой)
+    public boolean hasIntersection(Task task) {
+        return hasIntersection(task, task.getId());
+    }
+
+    // Метод проверки пересечения интервала задачи с задачами индекса, кроме задачи excludeId
+    public boolean hasIntersection(Task task, int excludeId) {
+        if (!task.hasStartTime()) {
+            return false;
+        }
+        return hasIntersection(task.getStartEpochSecond(), task.getStartNano(),
+                task.getEndEpochSecond(), task.getEndNano(), excludeId);
+    }
+
+    // Метод проверки пересечения интервала [start, end] с задачами индекса, кроме задачи excludeId
+    public boolean hasIntersection(LocalDateTime start, LocalDateTime end, int excludeId) {
+        return hasIntersection(second(start), start.getNano(), second(end), end.getNano(), excludeId);
+    }
+
+    private boolean hasIntersection(long startSecond, int startNano, long endSecond, int endNano, int excludeId) {
+        Slot candidate = byStart.floor(Slot.after(endSecond, endNano));
+        if (candidate != null && candidate.id == excludeId) {
+            candidate = byStart.lower(candidate);
+        }
+        return candidate != null && Task.compareTime(candidate.endSecond, candidate.endNano, startSecond, startNano) >= 0;
+    }
+
+    // Метод для поиска пересечений в списке задач, отсортированном по времени начала:
+    // один проход сравнивает каждую задачу с предыдущей и (если индекс не пуст) с задачами индекса.
+    // Возвращает первую пересекающуюся задачу или null
+    public Task findIntersection(List<Task> sortedByStart) {
+        Task previous = null;
+        for (Task task : sortedByStart) {
+            if (!task.hasStartTime()) {
+                continue;
+            }
+            if (previous != null && Task.compareTime(previous.getEndEpochSecond(), previous.getEndNano(),
+                    task.getStartEpochSecond(), task.getStartNano()) >= 0) {
+                return task;
+            }
+            if (!byId.isEmpty() && hasIntersection(task)) {
+                return task;
+            }
+            previous = task;
+        }
+        return null;
+    }
+
+    // Метод для проверки пачки задач, отсортированных по времени начала, одним слиянием с индексом.
+    // Задача отклоняется, если пересекается с задачей индекса (кроме задачи с тем же ID — её прежний интервал)
+    // или с ранее принятой задачей пачки; отклонённая задача не мешает следующим. Указатель по индексу
+    // только движется вперёд: O(log n + k + затронутые интервалы индекса). Возвращает признаки отклонения
+    public boolean[] sweepIntersections(List<? extends Task> sortedByStart) {
+        boolean[] rejected = new boolean[sortedByStart.size()];
+        if (sortedByStart.isEmpty()) {
+            return rejected;
+        }
+        Task first = sortedByStart.get(0);
+        Slot from = byStart.floor(Slot.before(first.getStartEpochSecond(), first.getStartNano()));
+        Iterator<Slot> slots = (from == null ? byStart : byStart.tailSet(from, true)).iterator();
+        Slot current = slots.hasNext() ? slots.next() : null;
+        // Следующий за current интервал, прочитанный заранее, когда current — прежний интервал самой задачи
+        Slot following = null;
+        Task accepted = null;
+        for (int i = 0; i < rejected.length; i++) {
+            Task task = sortedByStart.get(i);
+            while (current != null && Task.compareTime(current.endSecond, current.endNano,
+                    task.getStartEpochSecond(), task.getStartNano()) < 0) {
+                current = following != null ? following : slots.hasNext() ? slots.next() : null;
+                following = null;
+            }
+            Slot obstacle = current;
+            if (obstacle != null && obstacle.id == task.getId()) {
+                if (following == null && slots.hasNext()) {
+                    following = slots.next();
+                }
+                obstacle = following;
+            }
+            rejected[i] = obstacle != null && Task.compareTime(obstacle.startSecond, obstacle.startNano,
+                    task.getEndEpochSecond(), task.getEndNano()) <= 0
+                    || accepted != null && Task.compareTime(accepted.getEndEpochSecond(), accepted.getEndNano(),
+                    task.getStartEpochSecond(), task.getStartNano()) >= 0;
+            if (!rejected[i]) {
+                accepted = task;
+            }
+        }
+        return rejected;
+    }
+
+    // Метод для получения задач в порядке времени начала
+    public List<Task> getTasks() {
+        List<Task> result = new ArrayList<>(byStart.size());
+        for (Slot slot : byStart) {
+            result.add(slot.task);
+        }
+        return result;
+    }
+
+    // Метод для получения задач, интервал которых пересекается с [from, to], в порядке времени начала.
+    // Интервалы не пересекаются, поэтому из задач, начавшихся до from, в окно может попасть только ближайшая
+    public List<Task> getTasks(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        if (to.isBefore(from)) {
+            return result;
+        }
+        Slot fromSlot = Slot.before(from);
+        Slot running = byStart.lower(fromSlot);
+        if (running != null && running.compareEnd(fromSlot) >= 0) {
+            result.add(running.task);
+        }
+        for (Slot slot : byStart.subSet(fromSlot, true, Slot.after(to), true)) {
+            result.add(slot.task);
+        }
+        return result;
+    }
+
+    // Метод для получения не более limit задач, начинающихся строго после момента after
+    public List<Task> getTasksAfter(LocalDateTime after, int limit) {
+        List<Task> result = new ArrayList<>(Math.min(limit, byStart.size()));
+        Iterator<Slot> slots = byStart.tailSet(Slot.after(after), false).iterator();
+        while (result.size() < limit && slots.hasNext()) {
+            result.add(slots.next().task);
+        }
+        return result;
+    }
+
+    // Метод для поиска не более limit непересекающихся свободных интервалов длины duration в окне [notBefore, notAfter].
+    // Обходит промежутки между задачами, начиная с задачи, идущей в момент notBefore: O(log n + промежутки + limit).
+    // Возвращает времена начала найденных интервалов в порядке возрастания
+    public List<LocalDateTime> findFreeSlots(Duration duration, LocalDateTime notBefore, LocalDateTime notAfter,
+                                             int limit) {
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Продолжительность должна быть неотрицательной: " + duration);
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Количество слотов не может быть отрицательным: " + limit);
+        }
+        List<LocalDateTime> result = new ArrayList<>();
+        LocalDateTime candidate = notBefore;
+        Slot notBeforeSlot = Slot.after(notBefore);
+        Slot running = byStart.floor(notBeforeSlot);
+        if (running != null && running.compareEnd(notBeforeSlot) >= 0) {
+            candidate = running.getEndTime().plus(SLOT_STEP);
+        }
+        Iterator<Slot> busy = byStart.tailSet(notBeforeSlot, false).iterator();
+        Slot next = busy.hasNext() ? busy.next() : null;
+        while (result.size() < limit) {
+            LocalDateTime candidateEnd = candidate.plus(duration);
+            if (candidateEnd.isAfter(notAfter)) {
+                break;
+            }
+            if (next == null || Slot.after(candidateEnd).compareStart(next) < 0) {
+                result.add(candidate);
+                candidate = candidateEnd.plus(SLOT_STEP);
+            } else {
+                if (next.compareEnd(Slot.after(candidate)) >= 0) {
+                    candidate = next.getEndTime().plus(SLOT_STEP);
+                }
+                next = busy.hasNext() ? busy.next() : null;
+            }
+        }
+        return result;
+    }
+
+    // Метод для получения живого представления задач в порядке времени начала без копирования
+    public Collection<Task> tasks() {
+        return tasks;
+    }
+
+    public boolean contains(int id) {
+        return byId.containsKey(id);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public void clear() {
+        byStart.clear();
+        byId.clear();
+    }
+
+    private static long second(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // Снимок интервала задачи на момент добавления в индекс; слот без задачи — ключ поиска по моменту времени,
+    // стоящий до (before) или после (after) всех задач, начинающихся в этот момент
+    private static final class Slot {
+        private final Task task;
+        private final int id;
+        private final long startSecond;
+        private final int startNano;
+        private final long endSecond;
+        private final int endNano;
+
+        Slot(Task task, int id, long startSecond, int startNano, long endSecond, int endNano) {
+            this.task = task;
+            this.id = id;
+            this.startSecond = startSecond;
+            this.startNano = startNano;
+            this.endSecond = endSecond;
+            this.endNano = endNano;
+        }
+
+        static Slot before(long second, int nano) {
+            return new Slot(null, Integer.MIN_VALUE, second, nano, second, nano);
+        }
+
+        static Slot before(LocalDateTime time) {
+            return before(second(time), time.getNano());
+        }
+
+        static Slot after(long second, int nano) {
+            return new Slot(null, Integer.MAX_VALUE, second, nano, second, nano);
+        }
+
+        static Slot after(LocalDateTime time) {
+            return after(second(time), time.getNano());
+        }
+
+        int compareStart(Slot other) {
+            return Task.compareTime(startSecond, startNano, other.startSecond, other.startNano);
+        }
+
+        // Порядок индекса: время начала, при равенстве — ID
+        int compareTo(Slot other) {
+            int byTime = compareStart(other);
+            return byTime != 0 ? byTime : Integer.compare(id, other.id);
+        }
+
+        // Сравнение окончания слота с началом другого слота (для ключа поиска — с его моментом)
+        int compareEnd(Slot other) {
+            return Task.compareTime(endSecond, endNano, other.startSecond, other.startNano);
+        }
+
+        LocalDateTime getEndTime() {
+            return LocalDateTime.ofEpochSecond(endSecond, endNano, ZoneOffset.UTC);
+        }
+    }
+}
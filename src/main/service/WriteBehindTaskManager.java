@@ -0,0 +1,353 @@
+package main.service;
+
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Менеджер с отложенной записью: изменение только помечает состояние изменённым, а снимок кодируется
+// и пишется на диск (временный файл, сброс на диск, атомарная замена) фоновым потоком по DurabilityPolicy.
+// Сам менеджер, как и FileBackedTaskManager, используется из одного потока; под монитором менеджера
+// фоновый поток только копирует состояние, кодирование и запись идут без него.
+// Фоновый поток запускается при первом отложенном изменении
+public class WriteBehindTaskManager extends FileBackedTaskManager {
+    // Интервал записи по умолчанию для DurabilityPolicy.INTERVAL
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    private final DurabilityPolicy policy;
+    private final long intervalNanos;
+    private Thread writer;
+    // Изменения откладываются только после создания (и загрузки) менеджера; до этого и после закрытия пишем синхронно
+    private boolean deferred;
+    private boolean closed;
+    // Версии состояния: изменённая, взятая в запись, записанная на диск и запрошенная через flush()
+    private long dirtyVersion;
+    private long attemptedVersion;
+    private long flushedVersion;
+    private long requestedVersion;
+    private long lastWriteNanos;
+    private RuntimeException failure;
+
+    public WriteBehindTaskManager(File file) {
+        this(file, DurabilityPolicy.EVERY_WRITE);
+    }
+
+    public WriteBehindTaskManager(File file, DurabilityPolicy policy) {
+        this(file, policy, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public WriteBehindTaskManager(File file, DurabilityPolicy policy, long intervalMillis) {
+        this(file, policy, intervalMillis, SnapshotFormat.CSV);
+    }
+
+    public WriteBehindTaskManager(File file, DurabilityPolicy policy, long intervalMillis, SnapshotFormat format) {
+        this(file, policy, intervalMillis, format, true);
+        deferred = true;
+    }
+
+    private WriteBehindTaskManager(File file, DurabilityPolicy policy, long intervalMillis, SnapshotFormat format,
+                                   boolean fresh) {
+        super(file, PersistenceMode.SNAPSHOT, format, fresh);
+        if (policy == null) {
+            throw new IllegalArgumentException("Политика записи не может быть null");
+        }
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Интервал записи не может быть отрицательным: " + intervalMillis);
+        }
+        this.policy = policy;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    // Метод для загрузки данных из файла с последующей отложенной записью
+    public static WriteBehindTaskManager loadFromFile(File file, DurabilityPolicy policy, long intervalMillis) {
+        if (file == null) {
+            throw new IllegalArgumentException("Файл не может быть null");
+        }
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(file, policy, intervalMillis,
+                detectFormat(file.toPath()), false);
+        manager.restoreFromFiles();
+        manager.deferred = true;
+        return manager;
+    }
+
+    public DurabilityPolicy getPolicy() {
+        return policy;
+    }
+
+    // Изменение не пишет на диск само, а будит фоновый поток; при DurabilityPolicy.EVERY_WRITE
+    // возвращается только после записи снимка с этим изменением
+    @Override
+    protected synchronized void save() {
+        if (!deferred || closed) {
+            super.save();
+            return;
+        }
+        if (writer == null) {
+            startWriter();
+        }
+        dirtyVersion++;
+        notifyAll();
+        throwFailure();
+        if (policy == DurabilityPolicy.EVERY_WRITE) {
+            awaitFlushed(dirtyVersion);
+        }
+    }
+
+    // Метод для ожидания записи на диск всех изменений, сделанных до вызова
+    public synchronized void flush() {
+        throwFailure();
+        if (writer == null || flushedVersion >= dirtyVersion) {
+            return;
+        }
+        awaitFlushed(dirtyVersion);
+    }
+
+    // Ожидание записи версии target; монитор на время ожидания отпускается
+    private void awaitFlushed(long target) {
+        requestedVersion = Math.max(requestedVersion, target);
+        // Версия, запись которой завершилась ошибкой, пишется повторно
+        attemptedVersion = Math.min(attemptedVersion, flushedVersion);
+        notifyAll();
+        boolean interrupted = false;
+        while (flushedVersion < target && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        throwFailure();
+    }
+
+    // Закрытие дописывает все изменения и останавливает фоновый поток
+    @Override
+    public void close() {
+        Thread stopped;
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                stopped = writer;
+                closed = true;
+                writer = null;
+                notifyAll();
+            }
+        }
+        if (stopped != null) {
+            try {
+                stopped.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        super.close();
+    }
+
+    private void startWriter() {
+        writer = new Thread(this::writeLoop, "task-write-behind");
+        writer.setDaemon(true);
+        lastWriteNanos = System.nanoTime();
+        writer.start();
+    }
+
+    // Цикл фонового потока: под монитором состояние только копируется, кодирование и запись на диск идут без него
+    private void writeLoop() {
+        while (true) {
+            SnapshotState state;
+            long version;
+            synchronized (this) {
+                while (!closed && !isWriteDue()) {
+                    awaitWork();
+                }
+                if (closed) {
+                    return;
+                }
+                version = dirtyVersion;
+                attemptedVersion = version;
+                state = captureSnapshot();
+            }
+            long start = System.nanoTime();
+            RuntimeException error = null;
+            try {
+                byte[] snapshot = encodeSnapshot(state);
+                writeSnapshotDurably(snapshot);
+                getPersistenceStats().recordSave(snapshot.length, System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            synchronized (this) {
+                lastWriteNanos = System.nanoTime();
+                if (error == null) {
+                    flushedVersion = Math.max(flushedVersion, version);
+                } else {
+                    failure = error;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private boolean isWriteDue() {
+        if (attemptedVersion >= dirtyVersion) {
+            return false;
+        }
+        if (requestedVersion > flushedVersion) {
+            return true;
+        }
+        switch (policy) {
+            case EVERY_WRITE:
+                return true;
+            case INTERVAL:
+                return System.nanoTime() - lastWriteNanos >= intervalNanos;
+            default:
+                return false;
+        }
+    }
+
+    // Ожидание изменения или, для DurabilityPolicy.INTERVAL, наступления срока записи
+    private void awaitWork() {
+        try {
+            if (policy == DurabilityPolicy.INTERVAL && attemptedVersion < dirtyVersion) {
+                long remaining = intervalNanos - (System.nanoTime() - lastWriteNanos);
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(remaining, 1));
+            } else {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            closed = true;
+        }
+    }
+
+    private void throwFailure() {
+        RuntimeException error = failure;
+        if (error != null) {
+            failure = null;
+            throw new ManagerSaveException("Ошибка отложенной записи в файл", error);
+        }
+    }
+
+    // Изменяющие операции (в том числе просмотр, меняющий историю) выполняются под монитором менеджера,
+    // чтобы фоновый поток кодировал согласованное состояние
+    @Override
+    public synchronized void createTask(Task task) {
+        super.createTask(task);
+    }
+
+    @Override
+    public synchronized void createEpic(Epic epic) {
+        super.createEpic(epic);
+    }
+
+    @Override
+    public synchronized void createSubtask(Subtask subtask) {
+        super.createSubtask(subtask);
+    }
+
+    @Override
+    public synchronized Task getTaskById(int id) {
+        return super.getTaskById(id);
+    }
+
+    @Override
+    public synchronized Epic getEpicById(int id) {
+        return super.getEpicById(id);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id) {
+        return super.getSubtaskById(id);
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        super.updateTask(task);
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        super.updateEpic(epic);
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        super.updateSubtask(subtask);
+    }
+
+    @Override
+    public synchronized void updateEpicStatus(Epic epic) {
+        super.updateEpicStatus(epic);
+    }
+
+    @Override
+    public synchronized void deleteTaskById(int id) {
+        super.deleteTaskById(id);
+    }
+
+    @Override
+    public synchronized void deleteEpicById(int id) {
+        super.deleteEpicById(id);
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(int id) {
+        super.deleteSubtaskById(id);
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        super.deleteAllTasks();
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        super.deleteAllEpics();
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        super.deleteAllSubtasks();
+    }
+
+    @Override
+    public synchronized void batch(Consumer<TaskManager> operations) {
+        super.batch(operations);
+    }
+
+    // Изменения выполняются под монитором менеджера, поэтому фоновая запись не нарушает единственность писателя ленты
+    @Override
+    public synchronized TaskChangeFeed getChangeFeed() {
+        return super.getChangeFeed();
+    }
+
+    @Override
+    public synchronized TaskChangeFeed enableChangeFeed(int capacity) {
+        return super.enableChangeFeed(capacity);
+    }
+
+    @Override
+    public synchronized BulkResult createTasks(Collection<? extends Task> tasks) {
+        return super.createTasks(tasks);
+    }
+
+    @Override
+    public synchronized BulkResult createSubtasks(Collection<? extends Subtask> subtasks) {
+        return super.createSubtasks(subtasks);
+    }
+
+    @Override
+    public synchronized BulkResult updateSubtasks(Collection<? extends Subtask> subtasks) {
+        return super.updateSubtasks(subtasks);
+    }
+
+    @Override
+    public synchronized BulkResult deleteByIds(int... ids) {
+        return super.deleteByIds(ids);
+    }
+}
@@ -0,0 +1,201 @@
+package main.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+// Потоковое чтение CSV из буфера символов. Поле разбирается в один переиспользуемый StringBuilder
+// и доступно как CharSequence: числа и константы перечислений читаются без промежуточных строк и массивов.
+// Поддерживает поля в кавычках с запятыми, удвоенными кавычками и переводами строк (см. CsvWriter).
+// Некорректный ввод приводит к IllegalArgumentException с номером записи
+public final class CsvReader implements Closeable {
+    private static final int EOF = -1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private final StringBuilder field = new StringBuilder(64);
+    private boolean quoted;
+    // В текущей записи остались непрочитанные поля
+    private boolean fieldsRemaining;
+    private boolean blank;
+    private long recordNumber;
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    // Метод для перехода к следующей записи; непрочитанные поля текущей пропускаются
+    public boolean nextRecord() throws IOException {
+        while (fieldsRemaining) {
+            readField();
+        }
+        int c = peek();
+        if (c == EOF) {
+            return false;
+        }
+        recordNumber++;
+        blank = c == '\n' || c == '\r';
+        if (blank) {
+            skipLineBreak();
+            return true;
+        }
+        fieldsRemaining = true;
+        return true;
+    }
+
+    // Пустая строка, например разделитель разделов файла
+    public boolean isBlankRecord() {
+        return blank;
+    }
+
+    // Метод для чтения следующего поля записи; false, если поля закончились
+    public boolean nextField() throws IOException {
+        if (!fieldsRemaining) {
+            return false;
+        }
+        readField();
+        return true;
+    }
+
+    // Метод для чтения обязательного поля
+    public CharSequence requireField(String name) throws IOException {
+        if (!nextField()) {
+            throw malformed("нет поля " + name);
+        }
+        return field;
+    }
+
+    // Остались ли в записи непрочитанные поля
+    public boolean hasMoreFields() {
+        return fieldsRemaining;
+    }
+
+    // Текущее поле; содержимое меняется при чтении следующего
+    public CharSequence field() {
+        return field;
+    }
+
+    public boolean isFieldEmpty() {
+        return field.length() == 0;
+    }
+
+    // Поле было в кавычках: так пустая строка отличается от отсутствующего значения
+    public boolean isFieldQuoted() {
+        return quoted;
+    }
+
+    // Текущее поле как строка; пустое поле без кавычек — null
+    public String fieldAsString() {
+        return field.length() == 0 && !quoted ? null : field.toString();
+    }
+
+    public int fieldAsInt() {
+        try {
+            return Integer.parseInt(field, 0, field.length(), 10);
+        } catch (NumberFormatException e) {
+            throw malformed("ожидалось целое число: " + field);
+        }
+    }
+
+    public long fieldAsLong() {
+        try {
+            return Long.parseLong(field, 0, field.length(), 10);
+        } catch (NumberFormatException e) {
+            throw malformed("ожидалось целое число: " + field);
+        }
+    }
+
+    // Текущее поле как константа перечисления: сравнение с именами без создания строки
+    public <E extends Enum<E>> E fieldAsEnum(E[] values) {
+        for (E value : values) {
+            if (value.name().contentEquals(field)) {
+                return value;
+            }
+        }
+        throw malformed("неизвестное значение: " + field);
+    }
+
+    public boolean fieldEquals(String value) {
+        return value.contentEquals(field);
+    }
+
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    // Исключение о некорректной записи с её номером
+    public IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Некорректная строка CSV " + recordNumber + ": " + reason);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readField() throws IOException {
+        field.setLength(0);
+        quoted = false;
+        int c = read();
+        if (c == '"') {
+            quoted = true;
+            while (true) {
+                c = read();
+                if (c == EOF) {
+                    throw malformed("незакрытая кавычка");
+                }
+                if (c == '"') {
+                    if (peek() != '"') {
+                        break;
+                    }
+                    read();
+                }
+                field.append((char) c);
+            }
+            c = read();
+        }
+        while (c != ',' && c != '\n' && c != EOF) {
+            if (c != '\r') {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        fieldsRemaining = c == ',';
+    }
+
+    private void skipLineBreak() throws IOException {
+        if (read() == '\r' && peek() == '\n') {
+            read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,140 @@
+package main.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+// Потоковая запись CSV. Поля копятся в одном переиспользуемом StringBuilder и сбрасываются в Writer
+// крупными блоками через переиспользуемый массив символов, без промежуточных строк на каждую запись.
+// Поле с запятой, кавычкой или переводом строки заключается в кавычки, кавычки внутри удваиваются.
+// null пишется пустым полем, а пустая строка — парой кавычек, поэтому CsvReader различает их
+public final class CsvWriter implements Flushable {
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    private final Writer out;
+    private final StringBuilder buffer;
+    private char[] chunk;
+    private boolean firstField = true;
+
+    // Запись в поток
+    public CsvWriter(Writer out) {
+        this.out = out;
+        this.buffer = new StringBuilder(FLUSH_THRESHOLD * 2);
+    }
+
+    // Запись в переданный StringBuilder, например для одной строки журнала
+    public CsvWriter(StringBuilder target) {
+        this.out = null;
+        this.buffer = target;
+    }
+
+    // Метод для записи строкового поля
+    public CsvWriter field(CharSequence value) {
+        separate();
+        appendEscaped(buffer, value);
+        return this;
+    }
+
+    // Метод для записи числового поля
+    public CsvWriter field(long value) {
+        separate();
+        buffer.append(value);
+        return this;
+    }
+
+    // Метод для записи поля из имени константы перечисления
+    public CsvWriter field(Enum<?> value) {
+        return value == null ? emptyField() : field(value.name());
+    }
+
+    // Метод для записи пустого поля
+    public CsvWriter emptyField() {
+        separate();
+        return this;
+    }
+
+    // Метод для начала поля, которое вызывающий код форматирует прямо в буфер (без спецсимволов CSV)
+    public StringBuilder beginField() {
+        separate();
+        return buffer;
+    }
+
+    // Метод для завершения записи
+    public void endRecord() throws IOException {
+        buffer.append('\n');
+        firstField = true;
+        if (out != null && buffer.length() >= FLUSH_THRESHOLD) {
+            drain();
+        }
+    }
+
+    // Метод для очистки буфера перед новой записью (для записи в StringBuilder)
+    public void clear() {
+        buffer.setLength(0);
+        firstField = true;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            drain();
+            out.flush();
+        }
+    }
+
+    private void separate() {
+        if (firstField) {
+            firstField = false;
+        } else {
+            buffer.append(',');
+        }
+    }
+
+    private void drain() throws IOException {
+        int length = buffer.length();
+        if (length == 0) {
+            return;
+        }
+        if (chunk == null || chunk.length < length) {
+            chunk = new char[Math.max(length, FLUSH_THRESHOLD * 2)];
+        }
+        buffer.getChars(0, length, chunk, 0);
+        out.write(chunk, 0, length);
+        buffer.setLength(0);
+    }
+
+    // Метод для добавления поля с экранированием при необходимости
+    public static void appendEscaped(StringBuilder target, CharSequence value) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        if (length == 0) {
+            target.append("\"\"");
+            return;
+        }
+        if (!needsQuotes(value)) {
+            target.append(value);
+            return;
+        }
+        target.append('"');
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                target.append('"');
+            }
+            target.append(c);
+        }
+        target.append('"');
+    }
+
+    private static boolean needsQuotes(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,240 @@
+package main.util;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+// Множество int с сохранением порядка добавления без упаковки в Integer.
+// Элементы лежат в массиве в порядке добавления, удалённые позиции помечаются «дырами» и периодически
+// уплотняются. Позиция элемента ищется в хеш-таблице с открытой адресацией: add, remove и contains — O(1)
+public final class IntOrderedSet {
+    private static final int NONE = -1;
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] elements;
+    private boolean[] removed;
+    private int end;
+    private int size;
+    private int modCount;
+    // Хеш-таблица значение → позиция в elements с линейным пробированием
+    private int[] keys;
+    private int[] positions;
+    private int mask;
+
+    public IntOrderedSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntOrderedSet(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        elements = new int[capacity];
+        removed = new boolean[capacity];
+        allocateTable(tableSizeFor(capacity));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        return find(value) != NONE;
+    }
+
+    // Метод для добавления значения в конец; возвращает false, если значение уже есть
+    public boolean add(int value) {
+        if (find(value) != NONE) {
+            return false;
+        }
+        if (end == elements.length) {
+            if (end - size > size) {
+                compact();
+            } else {
+                elements = Arrays.copyOf(elements, elements.length * 2);
+                removed = Arrays.copyOf(removed, elements.length);
+            }
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        elements[end] = value;
+        insert(value, end);
+        end++;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    // Метод для удаления значения; возвращает false, если значения не было
+    public boolean remove(int value) {
+        int position = delete(value);
+        if (position == NONE) {
+            return false;
+        }
+        removed[position] = true;
+        size--;
+        modCount++;
+        if (size == 0) {
+            clear();
+        } else if (end - size > size && end > MIN_CAPACITY) {
+            compact();
+        }
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(removed, 0, end, false);
+        Arrays.fill(positions, NONE);
+        end = 0;
+        size = 0;
+        modCount++;
+    }
+
+    // Метод для обхода значений в порядке добавления без создания объектов
+    public void forEach(IntConsumer action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < end; i++) {
+            if (!removed[i]) {
+                action.accept(elements[i]);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    // Итератор только для чтения в порядке добавления
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private final int expectedModCount = modCount;
+            private int cursor = skipRemoved(0);
+
+            @Override
+            public boolean hasNext() {
+                return cursor < end;
+            }
+
+            @Override
+            public int nextInt() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (cursor >= end) {
+                    throw new NoSuchElementException();
+                }
+                int value = elements[cursor];
+                cursor = skipRemoved(cursor + 1);
+                return value;
+            }
+        };
+    }
+
+    // Копия значений в порядке добавления
+    public int[] toArray() {
+        int[] result = new int[size];
+        int index = 0;
+        for (int i = 0; i < end; i++) {
+            if (!removed[i]) {
+                result[index++] = elements[i];
+            }
+        }
+        return result;
+    }
+
+    private int skipRemoved(int position) {
+        while (position < end && removed[position]) {
+            position++;
+        }
+        return position;
+    }
+
+    // Уплотнение массива элементов: удалённые позиции выбрасываются, позиции в таблице пересчитываются
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < end; i++) {
+            if (!removed[i]) {
+                elements[target++] = elements[i];
+            }
+        }
+        Arrays.fill(removed, 0, end, false);
+        end = target;
+        rehash(keys.length);
+    }
+
+    private void rehash(int tableSize) {
+        allocateTable(tableSize);
+        for (int i = 0; i < end; i++) {
+            if (!removed[i]) {
+                insert(elements[i], i);
+            }
+        }
+    }
+
+    private void allocateTable(int tableSize) {
+        keys = new int[tableSize];
+        positions = new int[tableSize];
+        Arrays.fill(positions, NONE);
+        mask = tableSize - 1;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) * 2;
+    }
+
+    private int bucket(int value) {
+        // Старшие биты произведения подмешиваются к младшим, чтобы таблицы больше 2^16 использовали все ячейки
+        int hash = value * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private int find(int value) {
+        for (int i = bucket(value); positions[i] != NONE; i = (i + 1) & mask) {
+            if (keys[i] == value) {
+                return positions[i];
+            }
+        }
+        return NONE;
+    }
+
+    private void insert(int value, int position) {
+        int i = bucket(value);
+        while (positions[i] != NONE) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = value;
+        positions[i] = position;
+    }
+
+    // Удаление ключа со сдвигом следующих записей цепочки назад, без «надгробий»
+    private int delete(int value) {
+        int i = bucket(value);
+        while (positions[i] != NONE && keys[i] != value) {
+            i = (i + 1) & mask;
+        }
+        int position = positions[i];
+        if (position == NONE) {
+            return NONE;
+        }
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (positions[j] == NONE) {
+                break;
+            }
+            int home = bucket(keys[j]);
+            boolean stays = i < j ? home > i && home <= j : home > i || home <= j;
+            if (!stays) {
+                keys[i] = keys[j];
+                positions[i] = positions[j];
+                i = j;
+            }
+        }
+        positions[i] = NONE;
+        return position;
+    }
+}
@@ -0,0 +1,106 @@
+package main.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Гистограмма задержек в наносекундах с логарифмически-линейными корзинами (как в HdrHistogram).
+// Значения до 2^SUB_BITS хранятся точно, дальше каждая степень двойки делится на 2^SUB_BITS корзин,
+// поэтому относительная погрешность не превышает 1/2^SUB_BITS. Запись без блокировок и выделения памяти:
+// атомарный инкремент счётчика корзины, сумма и максимум — в полосатых LongAdder и LongAccumulator,
+// которые не конкурируют за одну ячейку при записи из многих потоков
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    // Метод для записи одного значения
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    // Метод для получения копии гистограммы; записи, идущие во время копирования, могут попасть в неё частично
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, total.sum(), max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int group = exponent - SUB_BITS + 1;
+        int sub = (int) (value >>> (exponent - SUB_BITS)) - SUB_COUNT;
+        return group * SUB_COUNT + sub;
+    }
+
+    // Наибольшее значение, попадающее в корзину
+    static long highestValueOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int group = index / SUB_COUNT;
+        long mantissa = SUB_COUNT + index % SUB_COUNT;
+        return ((mantissa + 1) << (group - 1)) - 1;
+    }
+
+    // Неизменяемая копия гистограммы
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return total;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        // Метод для получения перцентиля (quantile от 0 до 1) с точностью до корзины
+        public long getPercentileNanos(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
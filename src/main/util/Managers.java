@@ -3,6 +3,8 @@ package main.util;
 import main.service.*;
 
 public final class Managers {
+    // Системное свойство с размером истории просмотров; если не задано, история не ограничена
+    public static final String HISTORY_CAPACITY_PROPERTY = "taskmanager.history.capacity";
 
     private Managers() {
     }
@@ -11,7 +13,32 @@ public final class Managers {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
     public static HistoryManager getDefaultHistory() {
+        Integer capacity = Integer.getInteger(HISTORY_CAPACITY_PROPERTY);
+        if (capacity != null && capacity > 0) {
+            return getDefaultHistory(capacity);
+        }
         return new InMemoryHistoryManager();
     }
+
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new BoundedHistoryManager(capacity);
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
+
+    // Менеджер с метриками поверх переданного; метрики доступны через getMetrics()
+    public static InstrumentedTaskManager getInstrumented(TaskManager manager) {
+        return new InstrumentedTaskManager(manager);
+    }
+
+    public static InstrumentedHistoryManager getInstrumentedHistory(HistoryManager history) {
+        return new InstrumentedHistoryManager(history);
+    }
 }
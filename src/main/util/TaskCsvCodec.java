@@ -0,0 +1,218 @@
+package main.util;
+
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.model.TaskStatus;
+import main.model.TaskType;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+// Кодек строки задачи в CSV: id,type,name,status,description,duration,startTime,epic.
+// Запись всегда содержит 8 полей, отсутствующие продолжительность, время начала и эпик пишутся пустыми.
+// Продолжительность хранится в ISO-8601 (PT1M30S) без потери секунд и наносекунд, время — в ISO-формате
+// LocalDateTime, который собирается и разбирается по цифрам без форматтеров. Для совместимости читаются и старые
+// строки из 7 полей, со значением "null" и с продолжительностью целым числом минут
+public final class TaskCsvCodec {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private TaskCsvCodec() {
+    }
+
+    // Метод для записи полей задачи в текущую запись
+    public static void write(CsvWriter writer, Task task) {
+        writer.field(task.getId())
+                .field(task.getType())
+                .field(task.getName())
+                .field(task.getStatus())
+                .field(task.getDescription());
+        Duration duration = task.getDuration();
+        if (duration != null) {
+            writer.field(duration.toString());
+        } else {
+            writer.emptyField();
+        }
+        LocalDateTime startTime = task.getStartTime();
+        if (startTime != null) {
+            appendDateTime(writer.beginField(), startTime);
+        } else {
+            writer.emptyField();
+        }
+        if (task instanceof Subtask) {
+            writer.field(((Subtask) task).getEpicId());
+        } else {
+            writer.emptyField();
+        }
+    }
+
+    // Метод для получения строки задачи (без перевода строки)
+    public static String toCsv(Task task) {
+        StringBuilder row = new StringBuilder(96);
+        write(new CsvWriter(row), task);
+        return row.toString();
+    }
+
+    // Метод для чтения задачи из текущей записи
+    public static Task read(CsvReader reader) throws IOException {
+        reader.requireField("id");
+        int id = reader.fieldAsInt();
+        reader.requireField("type");
+        TaskType type = reader.fieldAsEnum(TYPES);
+        reader.requireField("name");
+        String name = reader.fieldAsString();
+        reader.requireField("status");
+        TaskStatus status = reader.fieldAsEnum(STATUSES);
+        reader.requireField("description");
+        String description = reader.fieldAsString();
+        reader.requireField("duration");
+        Duration duration = isNull(reader) ? null : parseDuration(reader);
+        reader.requireField("startTime");
+        LocalDateTime startTime = isNull(reader) ? null : parseDateTime(reader);
+        // У задач и эпиков в старых файлах поля epic нет
+        boolean hasEpic = reader.nextField() && !reader.isFieldEmpty();
+        if (reader.hasMoreFields()) {
+            throw reader.malformed("лишние поля");
+        }
+
+        Task task;
+        switch (type) {
+            case TASK:
+                task = new Task(name, description, duration, startTime);
+                break;
+            case EPIC:
+                task = new Epic(name, description);
+                break;
+            default:
+                if (!hasEpic) {
+                    throw reader.malformed("у подзадачи нет эпика");
+                }
+                task = new Subtask(name, description, reader.fieldAsInt(), duration, startTime);
+        }
+        task.setId(id);
+        task.setStatus(status);
+        return task;
+    }
+
+    private static boolean isNull(CsvReader reader) {
+        return reader.isFieldEmpty() || reader.fieldEquals("null");
+    }
+
+    // Продолжительность в ISO-8601 или, в старых файлах, целое число минут
+    private static Duration parseDuration(CsvReader reader) {
+        CharSequence text = reader.field();
+        int designator = text.charAt(0) == '-' || text.charAt(0) == '+' ? 1 : 0;
+        if (text.length() <= designator || Character.toUpperCase(text.charAt(designator)) != 'P') {
+            return Duration.ofMinutes(reader.fieldAsLong());
+        }
+        try {
+            return Duration.parse(text);
+        } catch (DateTimeParseException e) {
+            throw reader.malformed("некорректная продолжительность: " + text);
+        }
+    }
+
+    // Метод для записи времени в формате LocalDateTime.toString(): секунды и доли — только если не нулевые
+    public static void appendDateTime(StringBuilder out, LocalDateTime time) {
+        int year = time.getYear();
+        if (year < 0 || year > 9999) {
+            out.append(time);
+            return;
+        }
+        appendDigits(out, year, 4);
+        out.append('-');
+        appendDigits(out, time.getMonthValue(), 2);
+        out.append('-');
+        appendDigits(out, time.getDayOfMonth(), 2);
+        out.append('T');
+        appendDigits(out, time.getHour(), 2);
+        out.append(':');
+        appendDigits(out, time.getMinute(), 2);
+        int second = time.getSecond();
+        int nano = time.getNano();
+        if (second == 0 && nano == 0) {
+            return;
+        }
+        out.append(':');
+        appendDigits(out, second, 2);
+        if (nano == 0) {
+            return;
+        }
+        out.append('.');
+        if (nano % 1_000_000 == 0) {
+            appendDigits(out, nano / 1_000_000, 3);
+        } else if (nano % 1000 == 0) {
+            appendDigits(out, nano / 1000, 6);
+        } else {
+            appendDigits(out, nano, 9);
+        }
+    }
+
+    private static void appendDigits(StringBuilder out, int value, int width) {
+        for (int divisor = pow10(width - 1); divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static int pow10(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    // Метод для разбора времени вида yyyy-MM-ddTHH:mm[:ss[.n…]]; прочие формы — через LocalDateTime.parse
+    private static LocalDateTime parseDateTime(CsvReader reader) {
+        CharSequence text = reader.field();
+        int length = text.length();
+        if (length >= 16 && text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(10) == 'T'
+                && text.charAt(13) == ':' && (length == 16 || text.charAt(16) == ':')) {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 2);
+            int day = digits(text, 8, 2);
+            int hour = digits(text, 11, 2);
+            int minute = digits(text, 14, 2);
+            int second = 0;
+            int nano = 0;
+            boolean valid = year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0;
+            if (valid && length > 16) {
+                second = length >= 19 ? digits(text, 17, 2) : -1;
+                if (length > 19) {
+                    int fraction = length - 20;
+                    nano = text.charAt(19) == '.' && fraction >= 1 && fraction <= 9 ? digits(text, 20, fraction) : -1;
+                    nano = nano < 0 ? -1 : nano * pow10(9 - fraction);
+                }
+                valid = second >= 0 && nano >= 0;
+            }
+            if (valid) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+                } catch (RuntimeException e) {
+                    throw reader.malformed("некорректное время: " + text);
+                }
+            }
+        }
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            throw reader.malformed("некорректное время: " + text);
+        }
+    }
+
+    // Число из count цифр начиная с from или -1, если встретилась не цифра
+    private static int digits(CharSequence text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
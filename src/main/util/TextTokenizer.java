@@ -0,0 +1,47 @@
+package main.util;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Разбиение текста на слова для поиска. Слово — непрерывная последовательность букв и цифр любого алфавита
+// (кириллица и латиница одинаково), вместе с диакритическими знаками. Текст приводится к форме NFC и нижнему регистру,
+// «ё» заменяется на «е». Повторы слов отбрасываются, порядок первых вхождений сохраняется
+public final class TextTokenizer {
+    private static final String[] EMPTY = new String[0];
+
+    private TextTokenizer() {
+    }
+
+    public static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        if (!Normalizer.isNormalized(text, Normalizer.Form.NFC)) {
+            text = Normalizer.normalize(text, Normalizer.Form.NFC);
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                token.appendCodePoint(normalize(codePoint));
+            } else if (Character.getType(codePoint) == Character.NON_SPACING_MARK && token.length() > 0) {
+                token.appendCodePoint(codePoint);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens.toArray(EMPTY);
+    }
+
+    private static int normalize(int codePoint) {
+        int lower = Character.toLowerCase(codePoint);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
@@ -0,0 +1,102 @@
+package service;
+
+import main.model.Task;
+import main.service.HistoryManager;
+import main.util.Managers;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentHistoryManagerTest {
+    private static final int THREADS = 8;
+    private static final int TASKS_PER_THREAD = 500;
+
+    private static Task task(int id) {
+        Task task = new Task("Task " + id, "Description", Duration.ZERO, null);
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void shouldMoveRepeatedViewToEndAndRemove() {
+        HistoryManager history = Managers.getConcurrentHistory();
+        Task first = task(1);
+        Task second = task(2);
+        Task third = task(3);
+
+        history.add(first);
+        history.add(second);
+        history.add(third);
+        history.add(first);
+        assertEquals(3, history.size(), "Без конкуренции размер учитывает просмотры из буферов");
+        history.remove(2);
+
+        assertEquals(List.of(third, first), history.getHistory());
+        assertEquals(2, history.size());
+    }
+
+    // Каждый поток просматривает свои задачи по порядку, а затем повторно первую:
+    // в истории не должно быть дублей, а порядок просмотров каждого потока должен сохраниться
+    @Test
+    void shouldKeepPerThreadOrderWithoutDuplicatesUnderConcurrentViews() throws Exception {
+        HistoryManager history = Managers.getConcurrentHistory();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int base = t * TASKS_PER_THREAD;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                    history.add(task(base + i));
+                }
+                history.add(task(base));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<Task> result = history.getHistory();
+        assertEquals(THREADS * TASKS_PER_THREAD, result.size());
+        Set<Integer> ids = new HashSet<>();
+        int[] lastSeen = new int[THREADS];
+        for (Task task : result) {
+            assertTrue(ids.add(task.getId()), "Дубль в истории: " + task.getId());
+            int thread = task.getId() / TASKS_PER_THREAD;
+            int offset = task.getId() % TASKS_PER_THREAD;
+            if (offset != 0) {
+                assertTrue(offset > lastSeen[thread], "Нарушен порядок просмотров потока " + thread);
+                lastSeen[thread] = offset;
+            }
+        }
+        for (int t = 0; t < THREADS; t++) {
+            int first = t * TASKS_PER_THREAD;
+            int last = first + TASKS_PER_THREAD - 1;
+            assertTrue(indexOf(result, first) > indexOf(result, last), "Повторный просмотр не перенёс задачу в конец");
+        }
+    }
+
+    private static int indexOf(List<Task> history, int id) {
+        for (int i = 0; i < history.size(); i++) {
+            if (history.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
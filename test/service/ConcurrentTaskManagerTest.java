@@ -0,0 +1,228 @@
+package service;
+
+import main.exception.TaskTimeIntersectionException;
+import main.model.Epic;
+import main.model.Subtask;
+import main.model.Task;
+import main.model.TaskStatus;
+import main.service.TaskManager;
+import main.util.Managers;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 2_000;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    // Нагрузочный тест: потоки одновременно создают, изменяют и удаляют задачи в общем расписании,
+    // после чего проверяются инварианты менеджера
+    @Test
+    void shouldKeepInvariantsUnderConcurrentWrites() throws Exception {
+        TaskManager manager = Managers.getConcurrent();
+        List<Epic> sharedEpics = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Epic epic = new Epic("Epic " + i, "Description");
+            manager.createEpic(epic);
+            sharedEpics.add(epic);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    // Слоты пересекаются между потоками, часть операций должна быть отклонена
+                    LocalDateTime slot = START.plusMinutes(random.nextInt(20_000) * 10L);
+                    Duration duration = Duration.ofMinutes(5 + random.nextInt(20));
+                    try {
+                        switch (random.nextInt(6)) {
+                            case 0:
+                                manager.createTask(new Task("Task", "Desc", duration, slot));
+                                break;
+                            case 1:
+                            case 2:
+                                Epic epic = sharedEpics.get(random.nextInt(sharedEpics.size()));
+                                Subtask subtask = new Subtask("Sub", "Desc", epic.getId(), duration, slot);
+                                subtask.setStatus(TaskStatus.values()[random.nextInt(3)]);
+                                manager.createSubtask(subtask);
+                                break;
+                            case 3:
+                                List<Subtask> all = manager.getAllSubtasks();
+                                if (!all.isEmpty()) {
+                                    Subtask existing = all.get(random.nextInt(all.size()));
+                                    Subtask changed = new Subtask("Sub", "Changed", existing.getEpicId(), duration, slot);
+                                    changed.setId(existing.getId());
+                                    changed.setStatus(TaskStatus.values()[random.nextInt(3)]);
+                                    manager.updateSubtask(changed);
+                                }
+                                break;
+                            case 4:
+                                List<Subtask> candidates = manager.getAllSubtasks();
+                                if (!candidates.isEmpty()) {
+                                    manager.deleteSubtaskById(candidates.get(random.nextInt(candidates.size())).getId());
+                                }
+                                break;
+                            default:
+                                List<Task> plain = manager.getAllTasks();
+                                if (!plain.isEmpty()) {
+                                    Task task = plain.get(random.nextInt(plain.size()));
+                                    manager.getTaskById(task.getId());
+                                    if (random.nextBoolean()) {
+                                        manager.deleteTaskById(task.getId());
+                                    }
+                                }
+                        }
+                    } catch (TaskTimeIntersectionException ignored) {
+                        // ожидаемо при занятом слоте
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertInvariants(manager);
+    }
+
+    @Test
+    void shouldRollbackBatch() {
+        TaskManager manager = Managers.getConcurrent();
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId(), Duration.ofMinutes(30), START);
+        subtask.setStatus(TaskStatus.DONE);
+        manager.createSubtask(subtask);
+
+        assertThrows(TaskTimeIntersectionException.class, () -> manager.batch(m -> {
+            m.deleteSubtaskById(subtask.getId());
+            m.createSubtask(new Subtask("New", "Desc", epic.getId(), Duration.ofMinutes(30), START.plusHours(1)));
+            m.createTask(new Task("Conflict", "Desc", Duration.ofMinutes(30), START.plusHours(1)));
+        }));
+
+        assertEquals(List.of(subtask), manager.getSubtasksForEpic(epic.getId()));
+        assertEquals(List.of(subtask), manager.getPrioritizedTasks());
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+    }
+
+    @Test
+    void shouldRollbackInPlaceChangesAndKeepIdsOfRejectedTasks() {
+        TaskManager manager = Managers.getConcurrent();
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId(), Duration.ofMinutes(30), START);
+        manager.createSubtask(subtask);
+
+        assertThrows(IllegalStateException.class, () -> manager.batch(m -> {
+            Subtask stored = m.getSubtaskById(subtask.getId());
+            stored.setStatus(TaskStatus.DONE);
+            stored.setName("changed");
+            m.updateSubtask(stored);
+            throw new IllegalStateException("Откат");
+        }));
+        assertEquals("Sub", subtask.getName());
+        assertEquals(TaskStatus.NEW, subtask.getStatus());
+        assertEquals(TaskStatus.NEW, manager.getEpicById(epic.getId()).getStatus());
+
+        assertThrows(TaskTimeIntersectionException.class,
+                () -> manager.createTask(new Task("Conflict", "Desc", Duration.ofMinutes(10), START)));
+        Task next = new Task("Next", "Desc", null, null);
+        manager.createTask(next);
+        assertEquals(subtask.getId() + 1, next.getId(), "Отклонённая задача не должна расходовать ID");
+    }
+
+    @Test
+    void shouldReturnStoredEpicsAndRollbackTouchedRecords() {
+        TaskManager manager = Managers.getConcurrent();
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId(), Duration.ofMinutes(30), START);
+        manager.createSubtask(subtask);
+        Task task = new Task("Task", "Desc", Duration.ofMinutes(30), START.plusHours(2));
+        manager.createTask(task);
+        assertSame(epic, manager.getEpicById(epic.getId()), "Эпик выдаётся хранимым объектом, как задачи и подзадачи");
+        assertSame(epic, manager.streamEpics().findFirst().orElseThrow());
+
+        assertThrows(IllegalStateException.class, () -> manager.batch(m -> {
+            m.deleteEpicById(epic.getId());
+            Task replacement = new Task("Replaced", "Desc", null, null);
+            replacement.setId(task.getId());
+            m.updateTask(replacement);
+            m.createTask(new Task("New task", "Desc", Duration.ofMinutes(30), START.plusHours(5)));
+            throw new IllegalStateException("Откат");
+        }));
+        assertSame(epic, manager.getEpicById(epic.getId()));
+        assertEquals(List.of(subtask), manager.getSubtasksForEpic(epic.getId()));
+        assertSame(task, manager.getTaskById(task.getId()));
+        assertEquals(List.of(subtask, task), manager.getPrioritizedTasks());
+        assertEquals(List.of(task), manager.search("task", 10), "Поисковый индекс откатывается вместе с пачкой");
+        assertEquals(List.of(epic, task), manager.getHistory());
+    }
+
+    private static void assertInvariants(TaskManager manager) {
+        Set<Integer> ids = new HashSet<>();
+        List<Task> scheduled = new ArrayList<>();
+        for (Task task : manager.getAllTasks()) {
+            assertTrue(ids.add(task.getId()), "ID не должны повторяться");
+            scheduled.add(task);
+        }
+        for (Epic epic : manager.getAllEpics()) {
+            assertTrue(ids.add(epic.getId()), "ID не должны повторяться");
+        }
+        for (Subtask subtask : manager.getAllSubtasks()) {
+            assertTrue(ids.add(subtask.getId()), "ID не должны повторяться");
+            Epic epic = manager.getEpicById(subtask.getEpicId());
+            assertNotNull(epic, "У подзадачи должен быть эпик");
+            assertTrue(epic.getSubtasks().contains(subtask.getId()), "Эпик должен содержать свою подзадачу");
+            scheduled.add(subtask);
+        }
+
+        assertEquals(manager.getAllTasks().size(), manager.search("task", ids.size() + 1).size(),
+                "Поисковый индекс должен совпадать с хранимыми задачами");
+        assertEquals(manager.getAllSubtasks().size(), manager.search("sub", ids.size() + 1).size());
+        for (TaskStatus status : TaskStatus.values()) {
+            assertEquals(manager.streamSubtasks().filter(subtask -> subtask.getStatus() == status).count(),
+                    manager.getSubtasksByStatus(status).size(), "Индекс статусов должен совпадать с подзадачами");
+        }
+        assertEquals(ids.size(), manager.countByStatus().values().stream().mapToInt(Integer::intValue).sum());
+
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertEquals(scheduled.size(), prioritized.size(), "Все задачи со временем должны быть в расписании");
+        assertTrue(prioritized.containsAll(scheduled));
+        for (int i = 1; i < prioritized.size(); i++) {
+            Task previous = prioritized.get(i - 1);
+            Task current = prioritized.get(i);
+            assertTrue(previous.getEndTime().isBefore(current.getStartTime()),
+                    "Задачи в расписании не должны пересекаться: " + previous + " и " + current);
+        }
+
+        for (Epic epic : manager.getAllEpics()) {
+            List<Subtask> epicSubtasks = manager.getSubtasksForEpic(epic.getId());
+            assertEquals(epic.getSubtasks().size(), epicSubtasks.size(), "Эпик не должен ссылаться на удалённые подзадачи");
+            TaskStatus status = epic.getStatus();
+            manager.updateEpicStatus(epic);
+            assertEquals(epic.getStatus(), status, "Статус эпика должен совпадать с полным пересчётом");
+        }
+    }
+}
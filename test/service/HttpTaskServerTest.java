@@ -0,0 +1,178 @@
+package service;
+
+import main.http.HttpTaskServer;
+import main.model.Epic;
+import main.model.Task;
+import main.service.TaskManager;
+import main.util.LatencyHistogram;
+import main.util.Managers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpTaskServerTest {
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS_PER_CLIENT = 100;
+
+    private TaskManager manager;
+    private HttpTaskServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        manager = Managers.getConcurrent();
+        server = new HttpTaskServer(manager, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void shouldServeTasksEpicsAndSubtasksAsJson() throws Exception {
+        HttpResponse<String> created = send("POST", "/tasks",
+                "{\"name\": \"Задача, \\\"в кавычках\\\"\", \"description\": \"Строка\\nвторая\","
+                        + " \"duration\": 30, \"startTime\": \"2025-01-01T10:00\"}");
+        assertEquals(201, created.statusCode());
+        Task task = manager.getAllTasks().get(0);
+        assertEquals("Задача, \"в кавычках\"", task.getName());
+        assertTrue(created.body().contains("\"id\":" + task.getId()));
+        assertTrue(created.body().contains("\"endTime\":\"2025-01-01T10:30\""));
+        assertTrue(created.body().contains("\"duration\":\"PT30M\""), "Продолжительность пишется в ISO-8601");
+        HttpResponse<String> seconds = send("POST", "/tasks",
+                "{\"name\": \"Секунды\", \"duration\": \"PT45S\", \"startTime\": \"2025-01-02T10:00\"}");
+        assertTrue(seconds.body().contains("\"endTime\":\"2025-01-02T10:00:45\""));
+        assertEquals(200, send("DELETE", "/tasks/" + manager.search("Секунды", 1).get(0).getId(), null).statusCode());
+
+        HttpResponse<String> overlap = send("POST", "/tasks",
+                "{\"name\": \"Пересечение\", \"duration\": 10, \"startTime\": \"2025-01-01T10:15\"}");
+        assertEquals(406, overlap.statusCode());
+        assertEquals(400, send("POST", "/tasks", "{\"name\": ").statusCode());
+        assertEquals(404, send("GET", "/tasks/999", null).statusCode());
+        assertEquals(405, send("PUT", "/tasks", "{}").statusCode());
+
+        assertEquals(201, send("POST", "/epics", "{\"name\": \"Эпик\"}").statusCode());
+        Epic epic = manager.getAllEpics().get(0);
+        assertEquals(201, send("POST", "/subtasks", "{\"name\": \"Подзадача\", \"status\": \"DONE\", \"epicId\": "
+                + epic.getId() + "}").statusCode());
+        assertEquals(200, send("POST", "/epics", "{\"id\": " + epic.getId() + ", \"name\": \"Новое имя\"}")
+                .statusCode());
+        HttpResponse<String> epicJson = send("GET", "/epics/" + epic.getId(), null);
+        assertTrue(epicJson.body().contains("\"name\":\"Новое имя\""));
+        assertTrue(epicJson.body().contains("\"status\":\"DONE\""), "Обновлённый эпик сохраняет подзадачи");
+        assertTrue(send("GET", "/epics/" + epic.getId() + "/subtasks", null).body().contains("Подзадача"));
+
+        String history = send("GET", "/history", null).body();
+        assertTrue(history.startsWith("[") && history.contains("Новое имя"));
+        String window = send("GET", "/prioritized?from=2025-01-01T09:00&to=2025-01-01T11:00", null).body();
+        assertTrue(window.contains("\"id\":" + task.getId()));
+
+        assertEquals(200, send("DELETE", "/tasks/" + task.getId(), null).statusCode());
+        assertEquals("[]", send("GET", "/tasks", null).body());
+    }
+
+    @Test
+    void shouldApplyBatchAtomically() throws Exception {
+        String batch = "[{\"action\": \"create\", \"type\": \"TASK\", \"task\": {\"name\": \"A\", \"duration\": 30,"
+                + " \"startTime\": \"2025-01-01T10:00\"}},"
+                + " {\"action\": \"create\", \"type\": \"TASK\", \"task\": {\"name\": \"B\", \"duration\": 30,"
+                + " \"startTime\": \"2025-01-01T11:00\"}}]";
+        HttpResponse<String> applied = send("POST", "/batch", batch);
+        assertEquals(200, applied.statusCode());
+        assertEquals(2, manager.getAllTasks().size());
+
+        String conflicting = "[{\"action\": \"delete\", \"type\": \"TASK\", \"id\": "
+                + manager.getAllTasks().get(0).getId() + "},"
+                + " {\"action\": \"create\", \"type\": \"TASK\", \"task\": {\"name\": \"C\", \"duration\": 30,"
+                + " \"startTime\": \"2025-01-01T11:10\"}}]";
+        assertEquals(406, send("POST", "/batch", conflicting).statusCode());
+        assertEquals(2, manager.getAllTasks().size(), "Пачка с ошибкой не должна применяться частично");
+    }
+
+    // Нагрузочный тест: клиенты параллельно создают и читают задачи, замеряются пропускная способность
+    // и хвостовые задержки; все запросы должны завершиться успешно
+    @Test
+    void shouldHandleConcurrentLoad() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            int clientId = c;
+            futures.add(clients.submit(() -> {
+                start.await();
+                for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                    long begin = System.nanoTime();
+                    HttpResponse<String> response;
+                    int kind = ThreadLocalRandom.current().nextInt(4);
+                    if (kind == 0 || i < 10) {
+                        // У каждого клиента свой диапазон времени, чтобы задачи не пересекались
+                        LocalDateTime slot = LocalDateTime.of(2025, 1, 1, 0, 0)
+                                .plusHours((long) clientId * REQUESTS_PER_CLIENT + i);
+                        response = send("POST", "/tasks", "{\"name\": \"Задача " + i + "\", \"duration\": 30,"
+                                + " \"startTime\": \"" + slot + "\"}");
+                    } else if (kind == 1) {
+                        response = send("GET", "/tasks", null);
+                    } else if (kind == 2) {
+                        int id = manager.getAllTasks().get(0).getId();
+                        response = send("GET", "/tasks/" + id, null);
+                    } else {
+                        response = send("GET", "/prioritized?after=2025-01-01T00:00&limit=20", null);
+                    }
+                    latency.record(System.nanoTime() - begin);
+                    if (response.statusCode() >= 300) {
+                        failures.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        clients.shutdown();
+
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        assertEquals(0, failures.get());
+        assertEquals((long) CLIENTS * REQUESTS_PER_CLIENT, snapshot.getCount());
+        // Граница с большим запасом: ловит зависание или блокировку на время записи ответа, а не колебания машины
+        assertTrue(snapshot.getPercentileNanos(0.99) < TimeUnit.SECONDS.toNanos(2),
+                "p99 задержки запроса: " + snapshot.getPercentileNanos(0.99) / 1_000_000 + " мс");
+    }
+
+    private HttpResponse<String> send(String method, String path, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(body);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, publisher)
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
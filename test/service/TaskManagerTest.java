@@ -1,22 +1,54 @@
 package service;
 
+import main.exception.ChangeFeedOverrunException;
 import main.exception.TaskTimeIntersectionException;
 import main.model.Epic;
 import main.model.Subtask;
 import main.model.Task;
 import main.model.TaskStatus;
+import main.model.TaskType;
+import main.service.BackpressurePolicy;
+import main.service.BinarySnapshot;
+import main.service.BulkResult;
+import main.service.DurabilityPolicy;
 import main.service.FileBackedTaskManager;
 import main.service.HistoryManager;
+import main.service.InMemoryTaskManager;
+import main.service.InstrumentedTaskManager;
+import main.service.MetricsSnapshot;
+import main.service.PersistenceMode;
+import main.service.SnapshotFormat;
+import main.service.TaskChangeFeed;
+import main.service.TaskEvent;
+import main.service.TaskEventType;
+import main.service.TaskStore;
+import main.service.TaskTimeIndex;
 import main.service.TaskManager;
+import main.service.WriteBehindTaskManager;
+import main.util.LatencyHistogram;
 import main.util.Managers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -210,6 +242,138 @@ public class TaskManagerTest {
                 "должен возвращать список задач из истории просмотра");
     }
 
+    @Test
+    void shouldEvictOldestViewWhenBoundedHistoryIsFull() {
+        HistoryManager historyManager = Managers.getDefaultHistory(3);
+        Task[] tasks = new Task[5];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Task " + i, "Description", Duration.ZERO, null);
+            tasks[i].setId(i + 1);
+        }
+
+        historyManager.add(tasks[0]);
+        historyManager.add(tasks[1]);
+        historyManager.add(tasks[2]);
+        historyManager.add(tasks[0]);
+        historyManager.add(tasks[3]);
+        assertEquals(List.of(tasks[2], tasks[0], tasks[3]), historyManager.getHistory(),
+                "Повторный просмотр переносит задачу в конец, вытесняется самый давний");
+
+        historyManager.remove(3);
+        historyManager.add(tasks[4]);
+        historyManager.add(tasks[1]);
+        assertEquals(List.of(tasks[3], tasks[4], tasks[1]), historyManager.getHistory());
+    }
+
+    // Состав подзадач эпика на случайной последовательности добавлений и удалений совпадает с LinkedHashSet
+    @Test
+    void shouldKeepEpicSubtaskIdsInInsertionOrder() {
+        Epic epic = new Epic("Epic", "Description");
+        epic.setId(1_000);
+        LinkedHashSet<Integer> model = new LinkedHashSet<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                epic.removeSubtask(id);
+                model.remove(id);
+            } else {
+                epic.addSubtask(id);
+                model.add(id);
+            }
+            assertEquals(model.contains(id), epic.hasSubtask(id));
+        }
+        assertEquals(new ArrayList<>(model), epic.getSubtasks());
+        List<Integer> iterated = new ArrayList<>();
+        epic.subtaskIdIterator().forEachRemaining((IntConsumer) iterated::add);
+        assertEquals(epic.getSubtasks(), iterated);
+        assertEquals(model.size(), epic.getSubtaskCount());
+    }
+
+    @Test
+    void shouldLookUpAnyTypeInUnifiedStore() {
+        TaskStore store = new TaskStore();
+        TaskStore.View<Task> tasks = store.view(TaskType.TASK);
+        TaskStore.View<Epic> epics = store.view(TaskType.EPIC);
+        for (int id = 1; id <= 1_000; id++) {
+            if (id % 2 == 0) {
+                Epic epic = new Epic("Epic " + id, "Description");
+                epic.setId(id);
+                epics.put(id, epic);
+            } else {
+                Task task = new Task("Task " + id, "Description", Duration.ZERO, null);
+                task.setId(id);
+                tasks.put(id, task);
+            }
+        }
+        for (int id = 1; id <= 1_000; id += 3) {
+            store.remove(id);
+        }
+
+        assertEquals(TaskType.EPIC, store.typeOf(2));
+        assertEquals(TaskType.TASK, store.typeOf(3));
+        assertNull(store.typeOf(4), "Удалённая задача не должна находиться");
+        assertNull(tasks.get(2), "Представление по типу не должно возвращать задачи другого типа");
+        assertEquals(2, store.get(2).getId());
+        Task intruder = new Task("Task", "Description", Duration.ZERO, null);
+        intruder.setId(2);
+        assertThrows(IllegalArgumentException.class, () -> tasks.put(2, intruder),
+                "ID эпика не должен перезаписываться задачей");
+        assertEquals(TaskType.EPIC, store.typeOf(2));
+        assertEquals(store.size(), tasks.size() + epics.size());
+        int previous = 0;
+        for (Task task : tasks.values()) {
+            assertTrue(task.getId() > previous, "Представление обходит задачи в порядке добавления");
+            previous = task.getId();
+        }
+        epics.clear();
+        assertEquals(tasks.size(), store.size());
+        assertNull(store.get(2));
+    }
+
+    @Test
+    void shouldIgnoreUpdateWithIdOfAnotherType() {
+        TaskManager manager = Managers.getDefault();
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId(), Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0));
+        manager.createSubtask(subtask);
+
+        Task task = new Task("Task", "Description", null, null);
+        task.setId(epic.getId());
+        manager.updateTask(task);
+
+        assertSame(epic, manager.getEpicById(epic.getId()));
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertEquals(List.of(subtask), manager.getSubtasksForEpic(epic.getId()));
+    }
+
+    // Ограниченная история на случайной последовательности операций совпадает с эталонной LRU-моделью
+    @Test
+    void shouldMatchLruModelForRandomOperations() {
+        int capacity = 16;
+        HistoryManager historyManager = Managers.getDefaultHistory(capacity);
+        LinkedHashMap<Integer, Task> model = new LinkedHashMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(64);
+            if (random.nextInt(4) == 0) {
+                historyManager.remove(id);
+                model.remove(id);
+            } else {
+                Task task = new Task("Task " + id, "Description", Duration.ZERO, null);
+                task.setId(id);
+                historyManager.add(task);
+                model.remove(id);
+                model.put(id, task);
+                if (model.size() > capacity) {
+                    model.remove(model.keySet().iterator().next());
+                }
+            }
+        }
+        assertEquals(new ArrayList<>(model.values()), historyManager.getHistory());
+    }
+
     @Test
     void shouldCalculateEpicStatusWhenAllSubtasksNew() {
         TaskManager manager = Managers.getDefault();
@@ -321,6 +485,555 @@ public class TaskManagerTest {
         );
     }
 
+    @Test
+    void shouldAllowRescheduleOfSameTaskAndFreeSlotAfterDelete() {
+        TaskManager manager = Managers.getDefault();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task task1 = new Task("Task1", "Desc1", Duration.ofHours(1), start);
+        Task task2 = new Task("Task2", "Desc2", Duration.ofHours(1), start.plusHours(3));
+        manager.createTask(task1);
+        manager.createTask(task2);
+
+        task1.setStartTime(start.plusMinutes(30));
+        manager.updateTask(task1);
+        assertEquals(List.of(task1, task2), manager.getPrioritizedTasks(),
+                "Задача должна переместиться в индексе, не пересекаясь сама с собой");
+
+        assertThrows(TaskTimeIntersectionException.class, () ->
+                manager.createTask(new Task("Task3", "Desc3", Duration.ofMinutes(30), start.plusHours(2).plusMinutes(45))));
+
+        manager.deleteAllTasks();
+        assertTrue(manager.getPrioritizedTasks().isEmpty(), "Удалённые задачи не должны занимать время");
+        manager.createTask(new Task("Task4", "Desc4", Duration.ofHours(4), start));
+    }
+
+    @Test
+    void shouldKeepTasksWithSameStartInTimeIndex() {
+        TaskTimeIndex index = new TaskTimeIndex();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task first = new Task("Task1", "Desc1", Duration.ofHours(1), start);
+        first.setId(1);
+        Task second = new Task("Task2", "Desc2", Duration.ofMinutes(30), start);
+        second.setId(2);
+        index.add(second);
+        index.add(first);
+
+        assertEquals(List.of(first, second), index.getTasks(), "Задачи с одинаковым началом упорядочиваются по ID");
+        assertEquals(List.of(first, second), index.getTasks(start, start));
+        assertTrue(index.hasIntersection(start.minusMinutes(1), start, 3));
+        index.remove(2);
+        assertEquals(List.of(first), index.getTasks(), "Удаление одной задачи не должно затрагивать другую");
+    }
+
+    @Test
+    void shouldRecalculateEpicOnceAndCommitBatch() {
+        TaskManager manager = Managers.getDefault();
+        Epic epic = new Epic("Epic", "Description");
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        manager.batch(m -> {
+            m.createEpic(epic);
+            for (int i = 0; i < 3; i++) {
+                Subtask subtask = new Subtask("Sub" + i, "Desc", epic.getId(), Duration.ofMinutes(30), start.plusHours(i));
+                subtask.setStatus(TaskStatus.DONE);
+                m.createSubtask(subtask);
+            }
+            assertEquals(TaskStatus.NEW, epic.getStatus(), "Внутри пачки статус эпика не пересчитывается");
+        });
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+        assertEquals(3, manager.getSubtasksForEpic(epic.getId()).size());
+    }
+
+    @Test
+    void shouldRollbackBatchOnFailure() {
+        TaskManager manager = Managers.getDefault();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task task = new Task("Task", "Desc", Duration.ofHours(1), start);
+        Epic epic = new Epic("Epic", "Description");
+        manager.createTask(task);
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId(), Duration.ofMinutes(30), start.plusHours(2));
+        manager.createSubtask(subtask);
+        manager.getTaskById(task.getId());
+
+        assertThrows(TaskTimeIntersectionException.class, () -> manager.batch(m -> {
+            m.deleteTaskById(task.getId());
+            m.deleteSubtaskById(subtask.getId());
+            m.createTask(new Task("New", "Desc", Duration.ofMinutes(10), start.plusHours(5)));
+            m.createTask(new Task("Conflict", "Desc", Duration.ofMinutes(10), start.plusHours(5)));
+        }));
+
+        assertEquals(List.of(task), manager.getAllTasks());
+        assertEquals(List.of(subtask), manager.getSubtasksForEpic(epic.getId()));
+        assertEquals(List.of(task, subtask), manager.getPrioritizedTasks());
+        assertEquals(List.of(task), manager.getHistory());
+        Task next = new Task("Next", "Desc", null, null);
+        manager.createTask(next);
+        assertEquals(subtask.getId() + 1, next.getId(), "Счётчик ID должен откатиться вместе с пачкой");
+    }
+
+    @Test
+    void shouldRollbackInPlaceChangesOnBatchFailure() {
+        InMemoryTaskManager manager = (InMemoryTaskManager) Managers.getDefault();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task task = new Task("Task", "Desc", Duration.ofHours(1), start.plusHours(1));
+        Epic epic = new Epic("Epic", "Description");
+        manager.createTask(task);
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId(), Duration.ofMinutes(30), start);
+        manager.createSubtask(subtask);
+
+        assertThrows(IllegalStateException.class, () -> manager.batch(m -> {
+            Subtask stored = m.getSubtaskById(subtask.getId());
+            stored.setStatus(TaskStatus.DONE);
+            stored.setName("changed");
+            stored.setStartTime(start.plusHours(3));
+            m.updateSubtask(stored);
+            throw new IllegalStateException("Откат");
+        }));
+
+        assertEquals("Sub", subtask.getName());
+        assertEquals(TaskStatus.NEW, subtask.getStatus());
+        assertEquals(start, subtask.getStartTime());
+        assertEquals(TaskStatus.NEW, epic.getStatus(), "Статус эпика должен вернуться вместе с подзадачей");
+        assertEquals(List.of(subtask, task), manager.getPrioritizedTasks());
+        assertEquals(List.of(subtask), manager.getSubtasksByStatus(TaskStatus.NEW));
+        assertTrue(manager.getSubtasksByStatus(TaskStatus.DONE).isEmpty());
+        assertEquals(List.of(subtask), manager.search("sub", 10));
+        assertTrue(manager.getHistory().isEmpty(), "Просмотр внутри пачки откатывается вместе с ней");
+    }
+
+    @Test
+    void shouldApplyBulkOperationsAndReportFailuresPerItem() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent())) {
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+            Task existing = new Task("Existing", "Desc", Duration.ofHours(1), start);
+            Epic epic = new Epic("Epic", "Description");
+            manager.createTask(existing);
+            manager.createEpic(epic);
+
+            Task late = new Task("Late", "Desc", Duration.ofHours(1), start.plusHours(4));
+            Task clash = new Task("Clash", "Desc", Duration.ofHours(1), start.plusMinutes(30));
+            Task early = new Task("Early", "Desc", Duration.ofHours(1), start.minusHours(2));
+            Task sameSlot = new Task("SameSlot", "Desc", Duration.ofMinutes(30), start.plusHours(4).plusMinutes(15));
+            Task untimed = new Task("Untimed", "Desc", null, null);
+            BulkResult created = manager.createTasks(List.of(late, clash, early, sameSlot, untimed));
+            assertEquals(3, created.getSucceededCount());
+            assertEquals(List.of(late, early, untimed), created.getSucceeded());
+            assertInstanceOf(TaskTimeIntersectionException.class, created.getError(1), "Пересечение с расписанием");
+            assertInstanceOf(TaskTimeIntersectionException.class, created.getError(3), "Пересечение внутри пачки");
+            assertEquals(List.of(early, existing, late), manager.getPrioritizedTasks());
+
+            Subtask first = new Subtask("Sub1", "Desc", epic.getId(), Duration.ofMinutes(30), start.plusHours(2));
+            Subtask second = new Subtask("Sub2", "Desc", epic.getId(), Duration.ofMinutes(30), start.plusHours(3));
+            first.setStatus(TaskStatus.DONE);
+            second.setStatus(TaskStatus.DONE);
+            Subtask orphan = new Subtask("Orphan", "Desc", -1, null, null);
+            BulkResult subtasks = manager.createSubtasks(List.of(first, orphan, second));
+            assertEquals(List.of(first, second), subtasks.getSucceeded());
+            assertInstanceOf(IllegalArgumentException.class, subtasks.getError(1));
+            assertEquals(TaskStatus.DONE, manager.getEpicById(epic.getId()).getStatus());
+
+            second.setStatus(TaskStatus.IN_PROGRESS);
+            second.setStartTime(start.plusHours(2).plusMinutes(10));
+            BulkResult updated = manager.updateSubtasks(List.of(second));
+            assertInstanceOf(TaskTimeIntersectionException.class, updated.getError(0),
+                    "Новое время подзадачи пересекается с другой подзадачей");
+            second.setStartTime(start.plusHours(2).plusMinutes(45));
+            assertTrue(manager.updateSubtasks(List.of(second)).isAllSucceeded(),
+                    "Прежний интервал подзадачи не мешает её новому времени");
+            assertEquals(TaskStatus.IN_PROGRESS, manager.getEpicById(epic.getId()).getStatus());
+
+            BulkResult deleted = manager.deleteByIds(existing.getId(), epic.getId(), first.getId(), 999);
+            assertEquals(2, deleted.getSucceededCount());
+            assertInstanceOf(NoSuchElementException.class, deleted.getError(2), "Подзадача удалена вместе с эпиком");
+            assertInstanceOf(NoSuchElementException.class, deleted.getError(3));
+            assertEquals(List.of(early, late), manager.getPrioritizedTasks());
+            assertTrue(manager.getAllSubtasks().isEmpty());
+        }
+    }
+
+    @Test
+    void shouldAnswerStatusQueriesFromSecondaryIndex() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent())) {
+            Task task = new Task("Task", "Desc", null, null);
+            Epic epic = new Epic("Epic", "Description");
+            manager.createTask(task);
+            manager.createEpic(epic);
+            Subtask first = new Subtask("Sub1", "Desc", epic.getId(), null, null);
+            Subtask second = new Subtask("Sub2", "Desc", epic.getId(), null, null);
+            manager.createSubtask(first);
+            manager.createSubtask(second);
+            assertEquals(List.of(task, epic, first, second), manager.getByStatus(TaskStatus.NEW));
+
+            first.setStatus(TaskStatus.DONE);
+            manager.updateSubtask(first);
+            assertEquals(List.of(first), manager.getSubtasksByStatus(TaskStatus.DONE));
+            assertEquals(List.of(epic), manager.getEpicsByStatus(TaskStatus.IN_PROGRESS),
+                    "Пересчёт статуса эпика должен попадать в индекс");
+
+            Task done = new Task("Task", "Desc", null, null);
+            done.setId(task.getId());
+            done.setStatus(TaskStatus.DONE);
+            assertThrows(TaskTimeIntersectionException.class, () -> manager.batch(m -> {
+                m.updateTask(done);
+                m.deleteSubtaskById(second.getId());
+                throw new TaskTimeIntersectionException("Откат");
+            }));
+            assertEquals(List.of(task), manager.getTasksByStatus(TaskStatus.NEW), "Откат пачки восстанавливает индекс");
+            assertEquals(List.of(epic), manager.getEpicsByStatus(TaskStatus.IN_PROGRESS));
+
+            manager.deleteSubtaskById(second.getId());
+            assertEquals(List.of(epic, first), manager.getByStatus(TaskStatus.DONE));
+            manager.deleteEpicById(epic.getId());
+            assertEquals(Map.of(TaskStatus.NEW, 1, TaskStatus.IN_PROGRESS, 0, TaskStatus.DONE, 0),
+                    manager.countByStatus());
+            assertEquals(manager.countByStatus(), Managers.getInstrumented(manager).countByStatus());
+        }
+    }
+
+    @Test
+    void shouldSearchByNameAndDescriptionPrefixes() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent())) {
+            Task report = new Task("Квартальный ОТЧЁТ", "Собрать данные для report", null, null);
+            Task reportDraft = new Task("Черновик", "Подготовить отчёт о релизе", null, null);
+            Task release = new Task("Release notes", "Описать изменения релиза", null, null);
+            manager.createTask(report);
+            manager.createTask(reportDraft);
+            manager.createTask(release);
+            Epic epic = new Epic("Отчётность", "Все отчёты за год");
+            manager.createEpic(epic);
+
+            assertEquals(List.of(report, epic, reportDraft), manager.search("отчет", 10),
+                    "Регистр и «ё» не влияют; точное слово выше префикса, название выше описания");
+            assertEquals(List.of(report, epic, reportDraft), manager.search("отч", 10));
+            assertEquals(List.of(reportDraft), manager.search("отч рел", 10), "Все слова запроса обязательны");
+            assertEquals(List.of(release, report), manager.search("RE", 2));
+            assertTrue(manager.search("отчет годовой", 10).isEmpty());
+            assertTrue(manager.search("  ,. ", 10).isEmpty());
+
+            Task renamed = new Task("Годовой план", "Без отчётов", null, null);
+            renamed.setId(report.getId());
+            manager.updateTask(renamed);
+            assertEquals(List.of(renamed), manager.search("годов", 10));
+            assertEquals(List.of(epic, reportDraft, renamed), manager.search("отчет", 10));
+            manager.deleteEpicById(epic.getId());
+            manager.deleteTaskById(reportDraft.getId());
+            assertEquals(List.of(renamed), manager.search("отч", 10));
+        }
+    }
+
+    @Test
+    void shouldPublishMutationEventsWithSnapshotsToChangeFeed() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        TaskChangeFeed.Cursor cursor = manager.getChangeFeed().subscribe(BackpressurePolicy.FAIL);
+        Task task = new Task("Task", "Desc", null, null);
+        Epic epic = new Epic("Epic", "Description");
+        manager.createTask(task);
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId(), null, null);
+        manager.createSubtask(subtask);
+        Subtask done = new Subtask("Sub", "Desc", epic.getId(), null, null);
+        done.setId(subtask.getId());
+        done.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(done);
+        manager.deleteTaskById(task.getId());
+
+        List<TaskEvent> events = cursor.poll(100);
+        assertEquals(List.of(TaskEventType.CREATED, TaskEventType.CREATED, TaskEventType.CREATED,
+                TaskEventType.UPDATED, TaskEventType.EPIC_STATUS_CHANGED, TaskEventType.DELETED),
+                events.stream().map(TaskEvent::getType).collect(Collectors.toList()));
+        assertEquals(TaskStatus.NEW, events.get(3).getBefore().getStatus(),
+                "Снимок до изменения не меняется вместе с задачей");
+        assertEquals(TaskStatus.DONE, events.get(3).getAfter().getStatus());
+        assertEquals(TaskStatus.NEW, events.get(4).getBefore().getStatus());
+        assertEquals(TaskStatus.DONE, events.get(4).getAfter().getStatus());
+        assertEquals(0, ((Epic) events.get(4).getAfter()).getSubtaskCount(),
+                "Снимки пересчёта эпика не копируют список подзадач");
+        assertNull(events.get(5).getAfter());
+        assertEquals(task.getId(), events.get(5).getTaskId());
+        assertEquals(5, events.get(5).getSequence());
+        done.setName("Renamed");
+        manager.updateSubtask(done);
+        assertNull(cursor.poll(100).get(0).getBefore(), "Прежнее состояние объекта, изменённого на месте, неизвестно");
+
+        assertThrows(TaskTimeIntersectionException.class, () -> manager.batch(m -> {
+            m.createTask(new Task("Rolled back", "Desc", null, null));
+            throw new TaskTimeIntersectionException("Откат");
+        }));
+        assertTrue(cursor.poll(100).isEmpty(), "События отменённой пачки не публикуются");
+        manager.batch(m -> m.deleteEpicById(epic.getId()));
+        assertEquals(List.of(epic.getId(), subtask.getId()),
+                cursor.poll(100).stream().map(TaskEvent::getTaskId).collect(Collectors.toList()));
+
+        InMemoryTaskManager small = new InMemoryTaskManager();
+        TaskChangeFeed feed = small.enableChangeFeed(3);
+        assertEquals(4, feed.getCapacity());
+        TaskChangeFeed.Cursor oldest = feed.subscribe(BackpressurePolicy.DROP_OLDEST);
+        TaskChangeFeed.Cursor latest = feed.subscribe(BackpressurePolicy.SKIP_TO_LATEST);
+        TaskChangeFeed.Cursor failing = feed.subscribe(BackpressurePolicy.FAIL);
+        for (int i = 0; i < 10; i++) {
+            small.createTask(new Task("Task" + i, "Desc", null, null));
+        }
+        assertEquals(List.of(6L, 7L, 8L, 9L),
+                oldest.poll(100).stream().map(TaskEvent::getSequence).collect(Collectors.toList()));
+        assertEquals(6, oldest.getMissed());
+        assertTrue(latest.poll(100).isEmpty());
+        assertEquals(10, latest.getMissed());
+        assertThrows(ChangeFeedOverrunException.class, () -> failing.poll(100));
+        assertThrows(ChangeFeedOverrunException.class, () -> failing.poll(100), "Сбойный курсор остаётся сбойным");
+    }
+
+    @Test
+    void shouldReadChangeFeedConcurrentlyWithoutBlockingWriter() throws InterruptedException {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        TaskChangeFeed feed = manager.enableChangeFeed(64);
+        TaskChangeFeed.Cursor cursor = feed.subscribe(BackpressurePolicy.DROP_OLDEST);
+        int total = 20_000;
+        long[] received = new long[1];
+        boolean[] ordered = {true};
+        Thread reader = new Thread(() -> {
+            long[] last = {-1};
+            while (cursor.getSequence() < total) {
+                received[0] += cursor.poll(event -> {
+                    ordered[0] &= event.getSequence() > last[0];
+                    last[0] = event.getSequence();
+                }, 16);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < total; i++) {
+            manager.createTask(new Task("Task" + i, "Desc", null, null));
+        }
+        reader.join(10_000);
+        assertFalse(reader.isAlive());
+        assertTrue(ordered[0], "События читаются строго по возрастанию номера");
+        assertEquals(total, received[0] + cursor.getMissed(), "Каждое событие либо прочитано, либо учтено как пропуск");
+    }
+
+    @Test
+    void shouldTrackEpicStatusIncrementallyAndRepairByRecount() {
+        TaskManager manager = Managers.getDefault();
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        Subtask first = new Subtask("Sub1", "Desc1", epic.getId(), Duration.ofMinutes(30), null);
+        Subtask second = new Subtask("Sub2", "Desc2", epic.getId(), Duration.ofMinutes(30), null);
+        manager.createSubtask(first);
+        manager.createSubtask(second);
+
+        first.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(first);
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+
+        second.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(second);
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+
+        manager.deleteSubtaskById(second.getId());
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+
+        first.setStatus(TaskStatus.NEW);
+        epic.countSubtask(first);
+        epic.applySubtaskRollup();
+        first.setStatus(TaskStatus.DONE);
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        manager.updateEpicStatus(epic);
+        assertEquals(TaskStatus.DONE, epic.getStatus(), "Полный пересчёт должен исправлять счётчики");
+    }
+
+    @Test
+    void shouldCompareTaskTimeOnPrimitiveFields() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 23, 59, 59, 600_000_000);
+        Task task = new Task("Task", "Description", Duration.ofMillis(500), start);
+        assertEquals(LocalDateTime.of(2025, 1, 2, 0, 0, 0, 100_000_000), task.getEndTime());
+        assertEquals(Duration.ofMillis(500), task.getDuration(), "Адаптеры строятся по примитивам без потери наносекунд");
+        assertEquals(start, task.getStartTime());
+
+        Task instant = new Task("Instant", "Description", null, task.getEndTime());
+        assertEquals(instant.getStartTime(), instant.getEndTime(), "Задача без продолжительности занимает момент");
+        assertTrue(task.hasTimeIntersection(instant), "Касание концами — пересечение");
+        assertTrue(task.compareStartTo(instant) < 0);
+
+        instant.setStartTime(task.getEndTime().plusNanos(1));
+        assertFalse(task.hasTimeIntersection(instant));
+        instant.setStartTime(null);
+        assertFalse(instant.hasStartTime());
+        assertNull(instant.getEndTime());
+    }
+
+    @Test
+    void shouldKeepEpicTimeCurrentOnSubtaskChanges() {
+        TaskManager manager = Managers.getDefault();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Epic epic = new Epic("Epic", "Description");
+        manager.createEpic(epic);
+        Subtask early = new Subtask("Early", "Desc", epic.getId(), Duration.ofMinutes(30), start);
+        Subtask middle = new Subtask("Middle", "Desc", epic.getId(), Duration.ofMinutes(20), start.plusHours(2));
+        Subtask late = new Subtask("Late", "Desc", epic.getId(), Duration.ofMinutes(10), start.plusHours(5));
+        manager.createSubtask(middle);
+        manager.createSubtask(late);
+        manager.createSubtask(early);
+
+        assertEquals(start, epic.getStartTime());
+        assertEquals(start.plusHours(5).plusMinutes(10), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(60), epic.getDuration());
+
+        manager.deleteSubtaskById(early.getId());
+        assertEquals(start.plusHours(2), epic.getStartTime());
+
+        late.setStartTime(start.plusHours(7));
+        late.setDuration(Duration.ofMinutes(40));
+        manager.updateSubtask(late);
+        assertEquals(start.plusHours(7).plusMinutes(40), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(60), epic.getDuration());
+
+        manager.deleteAllSubtasks();
+        assertNull(epic.getStartTime());
+        assertNull(epic.getEndTime());
+        assertEquals(Duration.ZERO, epic.getDuration());
+    }
+
+    // Учтённые показатели эпика сверяются с прямым пересчётом по подзадачам после случайных учётов и удалений,
+    // включая совпадающие времена и продолжительности с наносекундами
+    @Test
+    void shouldMatchDirectRecountForRandomSubtaskChanges() {
+        Random random = new Random(11);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Epic epic = new Epic("Epic", "Description");
+        epic.setId(1000);
+        Map<Integer, Subtask> counted = new LinkedHashMap<>();
+        for (int step = 0; step < 2000; step++) {
+            int id = random.nextInt(40);
+            if (random.nextInt(4) == 0) {
+                epic.removeSubtask(id);
+                counted.remove(id);
+            } else {
+                Subtask subtask = new Subtask("Sub", "Desc", epic.getId(),
+                        random.nextInt(5) == 0 ? null : Duration.ofSeconds(random.nextInt(100), random.nextInt(3) * 400_000_000),
+                        random.nextInt(5) == 0 ? null : base.plusMinutes(random.nextInt(20)));
+                subtask.setId(id);
+                subtask.setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+                epic.addSubtask(id);
+                epic.countSubtask(subtask);
+                counted.put(id, subtask);
+            }
+            epic.applySubtaskRollup();
+
+            LocalDateTime start = counted.values().stream().map(Task::getStartTime)
+                    .filter(Objects::nonNull).min(LocalDateTime::compareTo).orElse(null);
+            LocalDateTime end = counted.values().stream().filter(Task::hasStartTime).map(Task::getEndTime)
+                    .max(LocalDateTime::compareTo).orElse(null);
+            Duration duration = counted.values().stream().map(Task::getDuration)
+                    .filter(Objects::nonNull).reduce(Duration.ZERO, Duration::plus);
+            long newCount = counted.values().stream().filter(sub -> sub.getStatus() == TaskStatus.NEW).count();
+            long doneCount = counted.values().stream().filter(sub -> sub.getStatus() == TaskStatus.DONE).count();
+            TaskStatus status = newCount == counted.size() ? TaskStatus.NEW
+                    : doneCount == counted.size() ? TaskStatus.DONE : TaskStatus.IN_PROGRESS;
+            assertEquals(start, epic.getStartTime(), "Начало на шаге " + step);
+            assertEquals(end, epic.getEndTime(), "Окончание на шаге " + step);
+            assertEquals(duration, epic.getDuration(), "Продолжительность на шаге " + step);
+            assertEquals(status, epic.getStatus(), "Статус на шаге " + step);
+        }
+    }
+
+    @Test
+    void shouldPageStreamAndViewTasksWithoutCopying() {
+        TaskManager manager = Managers.getDefault();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        for (int i = 0; i < 10; i++) {
+            manager.createTask(new Task("Task " + i, "Description", Duration.ofMinutes(10), start.minusHours(i)));
+        }
+        Collection<Task> view = manager.getTasksView();
+        Collection<Task> prioritizedView = manager.getPrioritizedTasksView();
+
+        List<Task> page = manager.getTasksPage(3, 4);
+        assertEquals(manager.getAllTasks().subList(3, 7), page);
+        assertEquals(2, manager.getTasksPage(8, 4).size());
+        assertTrue(manager.getTasksPage(20, 4).isEmpty());
+        assertEquals(manager.getPrioritizedTasks().subList(0, 2), manager.getPrioritizedTasksPage(0, 2));
+        assertEquals(10, manager.streamTasks().filter(task -> task.getStatus() == TaskStatus.NEW).count());
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksPage(-1, 4));
+
+        manager.deleteTaskById(page.get(0).getId());
+        assertEquals(9, view.size(), "Живое представление отражает изменения менеджера");
+        assertEquals(9, prioritizedView.size());
+        assertEquals(manager.getPrioritizedTasks(), new ArrayList<>(prioritizedView));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(page.get(1)));
+    }
+
+    @Test
+    void shouldQueryPrioritizedTasksByTimeWindow() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent())) {
+            List<Task> created = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Task task = new Task("Task " + i, "Description", Duration.ofMinutes(30), start.plusHours(i));
+                manager.createTask(task);
+                created.add(task);
+            }
+            manager.createTask(new Task("Unscheduled", "Description", Duration.ZERO, null));
+
+            assertEquals(created.subList(1, 4), manager.getPrioritizedTasks(start.plusHours(1).plusMinutes(15),
+                    start.plusHours(3)), "В окно попадает и задача, начавшаяся до его начала");
+            assertEquals(created.subList(2, 3), manager.getPrioritizedTasks(start.plusHours(2),
+                    start.plusHours(2).plusMinutes(45)));
+            assertTrue(manager.getPrioritizedTasks(start.plusMinutes(45), start.plusMinutes(50)).isEmpty());
+            assertEquals(created.subList(3, 6), manager.nextTasks(start.plusHours(2), 3));
+            assertEquals(created.subList(6, 8), manager.nextTasks(start.plusHours(5), 10));
+        }
+    }
+
+    @Test
+    void shouldFindFreeSlotsBetweenScheduledTasks() {
+        TaskManager manager = Managers.getDefault();
+        LocalDateTime day = LocalDateTime.of(2025, 1, 1, 9, 0);
+        manager.createTask(new Task("Morning", "Description", Duration.ofMinutes(60), day));
+        manager.createTask(new Task("Short gap", "Description", Duration.ofMinutes(30), day.plusMinutes(80)));
+        manager.createTask(new Task("Lunch", "Description", Duration.ofMinutes(60), day.plusHours(3)));
+
+        LocalDateTime slot = manager.findFreeSlot(Duration.ofMinutes(45), day.plusMinutes(30), day.plusHours(8));
+        assertEquals(day.plusMinutes(110).plusNanos(1), slot,
+                "Первый подходящий промежуток — сразу после окончания второй задачи");
+        Task planned = new Task("Planned", "Description", Duration.ofMinutes(45), slot);
+        assertDoesNotThrow(() -> manager.createTask(planned), "Найденный слот не должен пересекаться с задачами");
+
+        List<LocalDateTime> slots = manager.findFreeSlots(Duration.ofMinutes(30), day, day.plusHours(6), 3);
+        assertEquals(List.of(day.plusHours(4).plusNanos(1), day.plusHours(4).plusMinutes(30).plusNanos(2),
+                day.plusHours(5).plusNanos(3)), slots, "Промежуток 11:35–12:00 короче получаса и пропускается");
+        assertNull(manager.findFreeSlot(Duration.ofHours(2), day, day.plusHours(4)));
+    }
+
+    @Test
+    void shouldCollectMetricsForOperationsAndOverlapRejections() {
+        InstrumentedTaskManager manager = Managers.getInstrumented(Managers.getDefault());
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        manager.createTask(new Task("First", "Description", Duration.ofMinutes(30), start));
+        assertThrows(TaskTimeIntersectionException.class, () -> manager.batch(m ->
+                m.createTask(new Task("Overlap", "Description", Duration.ofMinutes(30), start.plusMinutes(10)))));
+        manager.getTaskById(1);
+
+        MetricsSnapshot metrics = manager.getMetrics();
+        assertEquals(2, metrics.getOperation("createTask").getCount());
+        assertEquals(1, metrics.getOperation("createTask").getErrors());
+        assertEquals(1, metrics.getOperation("batch").getErrors());
+        assertEquals(1, metrics.getValue("overlap_rejections"), "Отказ внутри пачки учитывается один раз");
+        assertEquals(1, metrics.getValue("tasks"));
+        assertEquals(1, metrics.getValue("history_size"));
+        assertTrue(metrics.toText().contains("taskmanager_operation_count{operation=\"getTaskById\"} 1"));
+    }
+
+    @Test
+    void shouldReportPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000_000, snapshot.getMaxNanos());
+        assertEquals(50_000_000, snapshot.getPercentileNanos(0.5), 50_000_000 / 32.0);
+        assertEquals(99_000_000, snapshot.getPercentileNanos(0.99), 99_000_000 / 32.0);
+    }
+
     @Test
     void shouldValidateSubtaskEpicRelation() {
         TaskManager manager = Managers.getDefault();
@@ -365,4 +1078,332 @@ class FileBackedTaskManagerTest {
         assertEquals(1, loadedManager.getAllTasks().size());
         assertEquals(1, loadedManager.getAllEpics().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRestoreIdsAndSubtasksFromSnapshot() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), start);
+        Task removed = new Task("Removed", "Description", null, null);
+        Epic epic = new Epic("Epic", "Description");
+        manager.createTask(task);
+        manager.createTask(removed);
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Description", epic.getId(), Duration.ofMinutes(15), start.plusHours(1));
+        subtask.setStatus(TaskStatus.DONE);
+        manager.createSubtask(subtask);
+        manager.deleteTaskById(removed.getId());
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        Subtask loadedSubtask = loadedManager.getSubtaskById(subtask.getId());
+        assertNotNull(loadedSubtask, "Подзадача должна восстановиться со своим ID");
+        assertEquals(epic.getId(), loadedSubtask.getEpicId());
+        assertEquals(start.plusHours(1), loadedSubtask.getStartTime());
+        assertEquals(Duration.ofMinutes(15), loadedSubtask.getDuration());
+        assertEquals(TaskStatus.DONE, loadedManager.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(task, loadedSubtask), loadedManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldReplayJournalOverSnapshot() throws IOException {
+        File file = File.createTempFile("journaled", ".csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), start);
+        Epic epic = new Epic("Epic", "Description");
+        journaled.createTask(task);
+        journaled.createEpic(epic);
+        Subtask subtask = new Subtask("Sub", "Description", epic.getId(), Duration.ofMinutes(15), start.plusHours(1));
+        journaled.createSubtask(subtask);
+        subtask.setStatus(TaskStatus.IN_PROGRESS);
+        journaled.updateSubtask(subtask);
+        journaled.deleteTaskById(task.getId());
+        journaled.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(0, loadedManager.getAllTasks().size(), "Удаление из журнала должно воспроизводиться");
+        assertEquals(TaskStatus.IN_PROGRESS, loadedManager.getSubtaskById(subtask.getId()).getStatus());
+        assertEquals(TaskStatus.IN_PROGRESS, loadedManager.getEpicById(epic.getId()).getStatus());
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldCompactJournalIntoSnapshot() throws IOException {
+        File file = File.createTempFile("compacted", ".csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        journaled.setCompactionThreshold(256);
+        for (int i = 0; i < 50; i++) {
+            journaled.createTask(new Task("Task " + i, "Description", Duration.ofMinutes(10),
+                    LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i)));
+        }
+        journaled.getTaskById(1);
+        journaled.close();
+        assertFalse(Files.exists(file.toPath().resolveSibling(file.getName() + ".journal.sealed")),
+                "Запечатанный журнал должен быть свёрнут в снимок");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(50, loadedManager.getAllTasks().size());
+        assertEquals(50, loadedManager.getPrioritizedTasks().size());
+        loadedManager.compact();
+        assertEquals(1, Files.readAllLines(file.toPath().resolveSibling(file.getName() + ".journal")).size(),
+                "После свёртки в журнале остаётся только запись поколения");
+        assertEquals(50, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldSkipSealedJournalAlreadyFoldedIntoSnapshot() throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            File file = File.createTempFile("folded", ".csv");
+            FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, format);
+            Epic epic = new Epic("Epic", "Description");
+            journaled.createEpic(epic);
+            journaled.compact();
+            journaled.createSubtask(new Subtask("Sub", "Description", epic.getId(), null, null));
+            journaled.deleteEpicById(epic.getId());
+            Path journalFile = file.toPath().resolveSibling(file.getName() + ".journal");
+            byte[] sealed = Files.readAllBytes(journalFile);
+            journaled.compact();
+            journaled.close();
+            // Сбой между заменой снимка и удалением запечатанного файла: файл уже свёрнут в снимок
+            Files.write(journalFile.resolveSibling(journalFile.getFileName() + ".sealed"), sealed);
+
+            FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+            assertTrue(loadedManager.getAllEpics().isEmpty(), "Свёрнутый журнал не должен применяться повторно");
+            assertTrue(loadedManager.getAllSubtasks().isEmpty());
+            loadedManager.close();
+        }
+    }
+
+    @Test
+    void shouldKeepHistoryAndSkipTornTailOfJournal() throws IOException {
+        File file = File.createTempFile("viewed", ".csv");
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        Task task = new Task("Task", "Description", null, null);
+        journaled.createTask(task);
+        journaled.getTaskById(task.getId());
+        journaled.createTask(new Task("Other", "Description", null, null));
+        journaled.close();
+        Path journalFile = file.toPath().resolveSibling(file.getName() + ".journal");
+        // Запись, оборванная при сбое посреди поля в кавычках
+        Files.write(journalFile, "P,9,TASK,\"Broken\n".getBytes(), StandardOpenOption.APPEND);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(List.of(task), loadedManager.getHistory(), "Просмотры должны сохраняться в журнале");
+        assertEquals(2, loadedManager.getAllTasks().size(), "Оборванная запись журнала не применяется");
+        loadedManager.getTaskById(2);
+        loadedManager.close();
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(2, reloaded.getHistory().size(), "Просмотр без последующего изменения пишется при закрытии");
+        assertEquals(2, reloaded.getAllTasks().size());
+        reloaded.close();
+    }
+
+    @Test
+    void shouldWriteFileOnceAfterBatch() {
+        manager.batch(m -> {
+            Epic epic = new Epic("Epic", "Description");
+            m.createEpic(epic);
+            m.createSubtask(new Subtask("Sub", "Description", epic.getId(), Duration.ofMinutes(15), null));
+            assertEquals(0, tempFile.length(), "Внутри пачки файл не должен перезаписываться");
+        });
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, loadedManager.getAllEpics().size());
+        assertEquals(1, loadedManager.getAllSubtasks().size());
+    }
+
+    @Test
+    void shouldReportPersistenceBytesAndDurations() {
+        InstrumentedTaskManager instrumented = Managers.getInstrumented(manager);
+        instrumented.createTask(new Task("Task", "Description", Duration.ofMinutes(15), null));
+        instrumented.createEpic(new Epic("Epic", "Description"));
+
+        MetricsSnapshot saved = instrumented.getMetrics();
+        assertEquals(2, saved.getOperation("persistence_save").getCount());
+        assertTrue(saved.getValue("persistence_saved_bytes") > tempFile.length(), "Учитываются обе перезаписи");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        MetricsSnapshot loaded = Managers.getInstrumented(loadedManager).getMetrics();
+        assertEquals(1, loaded.getOperation("persistence_load").getCount());
+        assertEquals(tempFile.length(), loaded.getValue("persistence_loaded_bytes"));
+    }
+
+    @Test
+    void shouldSaveAndLoadBinarySnapshotAndConvertToCsv() throws IOException {
+        File binaryFile = File.createTempFile("tasks", ".bin");
+        FileBackedTaskManager binary = new FileBackedTaskManager(binaryFile, PersistenceMode.SNAPSHOT,
+                SnapshotFormat.BINARY);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0, 30);
+        Task task = new Task("Задача", "Описание", Duration.ofMinutes(45), start);
+        Epic epic = new Epic("Эпик", "Описание");
+        binary.createTask(task);
+        binary.createEpic(epic);
+        Subtask subtask = new Subtask("Подзадача", "Описание", epic.getId(), Duration.ofMinutes(15), start.plusHours(1));
+        subtask.setStatus(TaskStatus.DONE);
+        binary.createSubtask(subtask);
+        binary.getSubtaskById(subtask.getId());
+        binary.getTaskById(task.getId());
+        binary.deleteAllTasks();
+        binary.createTask(task);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(binaryFile);
+        Task loadedTask = loaded.getAllTasks().get(0);
+        assertEquals(task.getName(), loadedTask.getName());
+        assertEquals(start, loadedTask.getStartTime());
+        assertEquals(Duration.ofMinutes(45), loadedTask.getDuration());
+        assertEquals(List.of(subtask), loaded.getHistory());
+        assertEquals(TaskStatus.DONE, loaded.getAllEpics().get(0).getStatus());
+
+        File csvFile = File.createTempFile("tasks", ".csv");
+        FileBackedTaskManager.convert(binaryFile, csvFile, SnapshotFormat.CSV);
+        assertTrue(Files.readString(csvFile.toPath()).startsWith("id,type"));
+        FileBackedTaskManager fromCsv = FileBackedTaskManager.loadFromFile(csvFile);
+        assertEquals(1, fromCsv.getAllSubtasks().size());
+        assertEquals(List.of(subtask), fromCsv.getHistory());
+    }
+
+    @Test
+    void shouldKeepMissingStatusAndDurationNanosInBinarySnapshot() throws IOException {
+        File file = File.createTempFile("tasks", ".bin");
+        Task task = new Task("Задача", "Описание", Duration.ofSeconds(90, 250_000_000), LocalDateTime.of(2025, 1, 1, 10, 0));
+        task.setId(1);
+        task.setStatus(null);
+        BinarySnapshot.write(file.toPath(), List.of(task), List.of());
+
+        Task loaded = BinarySnapshot.read(file.toPath()).getTasks().get(0);
+        assertNull(loaded.getStatus());
+        assertEquals(Duration.ofSeconds(90, 250_000_000), loaded.getDuration());
+        assertEquals(task.getEndTime(), loaded.getEndTime());
+    }
+
+    @Test
+    void shouldRejectCorruptedBinarySnapshot() throws IOException {
+        File file = File.createTempFile("tasks", ".bin");
+        Task task = new Task("Задача", "Описание", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0));
+        task.setId(1);
+        BinarySnapshot.write(file.toPath(), List.of(task), List.of(task), 3);
+        byte[] valid = Files.readAllBytes(file.toPath());
+        assertEquals(3, BinarySnapshot.read(file.toPath()).getJournalGeneration());
+
+        // Число записей, отрицательная длина первой строки (заголовок 36 байт + одна запись 44 байта),
+        // обрезанный файл
+        int[][] corruptions = {{8, 0x7F}, {80, 0xFF}, {-1, 0}};
+        for (int[] corruption : corruptions) {
+            byte[] bytes = corruption[0] < 0 ? Arrays.copyOf(valid, valid.length - 5) : valid.clone();
+            if (corruption[0] >= 0) {
+                bytes[corruption[0]] = (byte) corruption[1];
+            }
+            Files.write(file.toPath(), bytes);
+            assertThrows(IOException.class, () -> BinarySnapshot.read(file.toPath()),
+                    "Повреждённый снимок должен давать IOException");
+        }
+    }
+
+    @Test
+    void shouldBulkLoadWithoutRewritingFileAndContinueIds() throws IOException {
+        String content = "id,type,name,status,description,duration,startTime,epic\n"
+                + "7,EPIC,Epic,NEW,Description,0,\n"
+                + "12,SUBTASK,Sub,DONE,Description,30,2025-01-01T12:00,7\n"
+                + "3,TASK,Task,NEW,Description,60,2025-01-01T10:00\n"
+                + "\nHistory\n12,3,\n";
+        Files.writeString(tempFile.toPath(), content);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(content, Files.readString(tempFile.toPath()), "Загрузка не должна перезаписывать файл");
+        assertEquals(TaskStatus.DONE, loadedManager.getEpicById(7).getStatus());
+        assertEquals(List.of(3, 12), loadedManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+
+        Task next = new Task("Next", "Description", null, null);
+        loadedManager.createTask(next);
+        assertEquals(13, next.getId(), "Новые ID должны продолжать максимальный загруженный");
+    }
+
+    @Test
+    void shouldRejectOverlappingTasksOnLoad() throws IOException {
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,duration,startTime,epic\n"
+                + "1,TASK,First,NEW,Description,60,2025-01-01T10:00\n"
+                + "2,TASK,Second,NEW,Description,60,2025-01-01T10:30\n");
+
+        assertThrows(TaskTimeIntersectionException.class, () -> FileBackedTaskManager.loadFromFile(tempFile));
+    }
+
+    @Test
+    void shouldRoundTripSpecialCharactersThroughCsvSnapshotAndJournal() {
+        for (PersistenceMode mode : PersistenceMode.values()) {
+            FileBackedTaskManager source = new FileBackedTaskManager(tempFile, mode);
+            Task task = new Task("Имя, с запятой", "Строка 1\nСтрока \"2\"\r\n", null,
+                    LocalDateTime.of(2025, 1, 1, 10, 0, 15, 500_000_000));
+            Epic epic = new Epic("", "Описание");
+            source.createTask(task);
+            source.createEpic(epic);
+            Subtask subtask = new Subtask("Подзадача", null, epic.getId(), Duration.ofMinutes(45),
+                    LocalDateTime.of(2025, 1, 2, 9, 30));
+            source.createSubtask(subtask);
+            source.getSubtaskById(subtask.getId());
+            source.getTaskById(task.getId());
+            source.close();
+
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, mode);
+            Task loadedTask = loaded.getTaskById(task.getId());
+            assertEquals(task.getName(), loadedTask.getName(), mode.name());
+            assertEquals(task.getDescription(), loadedTask.getDescription(), mode.name());
+            assertNull(loadedTask.getDuration(), "Отсутствующая продолжительность не должна становиться нулевой");
+            assertEquals(task.getStartTime(), loadedTask.getStartTime());
+            assertEquals("", loaded.getEpicById(epic.getId()).getName(), "Пустая строка не должна становиться null");
+            Subtask loadedSubtask = loaded.getSubtaskById(subtask.getId());
+            assertNull(loadedSubtask.getDescription());
+            assertEquals(epic.getId(), loadedSubtask.getEpicId());
+            assertEquals(subtask.getStartTime(), loadedSubtask.getStartTime());
+            assertEquals(task.toString(), loadedTask.toString());
+            loaded.close();
+        }
+    }
+
+    @Test
+    void shouldRoundTripSubMinuteDurationThroughCsvAndReadOldMinuteFormat() throws IOException {
+        for (PersistenceMode mode : PersistenceMode.values()) {
+            FileBackedTaskManager source = new FileBackedTaskManager(tempFile, mode);
+            Task task = new Task("Задача", "Описание", Duration.ofSeconds(90), LocalDateTime.of(2025, 1, 1, 10, 0));
+            source.createTask(task);
+            source.close();
+
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, mode);
+            assertEquals(Duration.ofSeconds(90), loaded.getAllTasks().get(0).getDuration(), mode.name());
+            assertEquals(task.getEndTime(), loaded.getAllTasks().get(0).getEndTime(), mode.name());
+            loaded.close();
+        }
+
+        File oldFile = File.createTempFile("old", ".csv");
+        Files.writeString(oldFile.toPath(), "id,type,name,status,description,duration,startTime,epic\n"
+                + "1,TASK,Старая,NEW,Описание,30,2025-01-01T10:00,\n");
+        FileBackedTaskManager old = FileBackedTaskManager.loadFromFile(oldFile);
+        assertEquals(Duration.ofMinutes(30), old.getAllTasks().get(0).getDuration(),
+                "Продолжительность в минутах из старых файлов должна читаться");
+    }
+
+    @Test
+    void shouldWriteBehindAccordingToDurabilityPolicy() throws IOException {
+        WriteBehindTaskManager onShutdown = new WriteBehindTaskManager(tempFile, DurabilityPolicy.ON_SHUTDOWN);
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0));
+        onShutdown.createTask(task);
+        assertEquals(0, Files.size(tempFile.toPath()), "До flush() файл не должен записываться");
+
+        onShutdown.flush();
+        assertEquals(1, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+
+        onShutdown.createEpic(new Epic("Epic", "Description"));
+        onShutdown.close();
+        assertEquals(1, FileBackedTaskManager.loadFromFile(tempFile).getAllEpics().size());
+
+        WriteBehindTaskManager everyWrite = WriteBehindTaskManager.loadFromFile(tempFile,
+                DurabilityPolicy.EVERY_WRITE, 0);
+        for (int i = 0; i < 100; i++) {
+            everyWrite.createTask(new Task("Task " + i, "Description", null, null));
+        }
+        everyWrite.deleteTaskById(task.getId());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(100, loaded.getAllTasks().size());
+        assertNull(loaded.getTaskById(task.getId()));
+        everyWrite.close();
+    }
+}